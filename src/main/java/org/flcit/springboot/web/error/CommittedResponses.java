@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Errors raised after the response is committed (StreamingResponseBody, SSE, streamed downloads):
+ * no error body, the SSE streams are ended with a compact error event
+ * and the aborted stream is reported once per request.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class CommittedResponses {
+
+    static final String ABORTED_ATTRIBUTE = CommittedResponses.class.getName() + ".ABORTED";
+
+    private static final byte[] EVENT_START = "event: error\ndata: {\"code\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_END = "\"}\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private CommittedResponses() { }
+
+    /**
+     * @param webRequest
+     * @return the committed response, null if the response is not committed
+     */
+    static final HttpServletResponse getCommittedResponse(WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servletWebRequest) {
+            final HttpServletResponse response = servletWebRequest.getResponse();
+            if (response != null && response.isCommitted()) {
+                return response;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ends the SSE stream with an error event, once per request
+     * @param request
+     * @param response
+     * @param code
+     * @return true the first time for the request (to report the aborted stream once)
+     */
+    static final boolean abort(HttpServletRequest request, HttpServletResponse response, String code) {
+        if (request.getAttribute(ABORTED_ATTRIBUTE) != null) {
+            return false;
+        }
+        request.setAttribute(ABORTED_ATTRIBUTE, Boolean.TRUE);
+        if (isEventStream(response.getContentType())) {
+            writeErrorEvent(response, code);
+        }
+        return true;
+    }
+
+    static final boolean isEventStream(String contentType) {
+        return contentType != null && contentType.regionMatches(true, 0, MediaType.TEXT_EVENT_STREAM_VALUE, 0, MediaType.TEXT_EVENT_STREAM_VALUE.length());
+    }
+
+    private static final void writeErrorEvent(HttpServletResponse response, String code) {
+        try {
+            final ServletOutputStream os = response.getOutputStream();
+            os.write(EVENT_START);
+            os.write(escape(code).getBytes(StandardCharsets.UTF_8));
+            os.write(EVENT_END);
+            response.flushBuffer();
+        } catch (IOException | IllegalStateException e) {
+            // client gone or writer already used: the stream is aborted anyway
+        }
+    }
+
+    private static final String escape(String code) {
+        if (code == null) {
+            return "";
+        }
+        if (code.indexOf('"') == -1 && code.indexOf('\\') == -1 && code.indexOf('\n') == -1 && code.indexOf('\r') == -1) {
+            return code;
+        }
+        final StringBuilder sb = new StringBuilder(code.length() + 8);
+        for (int i = 0; i < code.length(); i++) {
+            final char c = code.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c != '\n' && c != '\r') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+
+/**
+ * Conversion of the jakarta.validation.ConstraintViolationException,
+ * only loaded when the exception is handled (the Bean Validation API is optional).
+ * The codes follow the Spring ones: constraint.object.field, constraint.field, constraint.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class ConstraintViolationErrors {
+
+    private ConstraintViolationErrors() { }
+
+    static final List<ObjectError> getErrors(Exception ex, int maxErrors) {
+        final Set<ConstraintViolation<?>> violations = ((ConstraintViolationException) ex).getConstraintViolations();
+        if (violations == null || violations.isEmpty() || maxErrors <= 0) {
+            return List.of();
+        }
+        final List<ObjectError> errors = new ArrayList<>(Math.min(violations.size(), maxErrors));
+        for (ConstraintViolation<?> violation: violations) {
+            errors.add(toError(violation));
+            if (errors.size() >= maxErrors) {
+                break;
+            }
+        }
+        return errors;
+    }
+
+    private static final ObjectError toError(ConstraintViolation<?> violation) {
+        final String objectName = violation.getRootBeanClass() != null
+                ? StringUtils.uncapitalize(violation.getRootBeanClass().getSimpleName())
+                : "object";
+        final String field = violation.getPropertyPath() != null ? violation.getPropertyPath().toString() : "";
+        final String constraint = violation.getConstraintDescriptor() != null && violation.getConstraintDescriptor().getAnnotation() != null
+                ? violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName()
+                : null;
+        final String[] codes = constraint != null
+                ? new String[] { constraint + '.' + objectName + '.' + field, constraint + '.' + field, constraint }
+                : null;
+        final Object[] arguments = { new DefaultMessageSourceResolvable(new String[] { objectName + '.' + field, field }, field) };
+        return new FieldError(objectName, field, violation.getInvalidValue(), false, codes, arguments, violation.getMessage());
+    }
+
+}
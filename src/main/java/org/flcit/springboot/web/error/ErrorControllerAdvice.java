@@ -16,17 +16,27 @@
 
 package org.flcit.springboot.web.error;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.ObjLongConsumer;
 
 import org.flcit.commons.core.exception.BasicRuntimeException;
 import org.flcit.commons.core.util.ArrayUtils;
 import org.flcit.commons.core.util.ClassUtils;
 import org.flcit.commons.core.util.StringUtils;
+import org.flcit.springboot.web.error.UpstreamFailureAggregator.UpstreamFailure;
 import org.flcit.springboot.web.error.domain.ApiErrorBase;
 import org.flcit.springboot.web.error.domain.ApiErrorTrace;
 import org.flcit.springboot.web.error.domain.ApiErrors;
+import org.flcit.springboot.web.error.exception.Stackless;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -36,6 +46,8 @@ import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.validation.ObjectError;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -44,9 +56,12 @@ import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 /**
@@ -61,36 +76,219 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
     private static final String CODE_VALIDATION_FAILED = "VALIDATION_FAILED";
     private static final String CODE_MESSAGE_READ_FAILED = "MESSAGE_READ_FAILED";
     private static final String CODE_EXTERNAL_REST_CALL_FAILED = "EXTERNAL_REST_CALL_FAILED";
+    private static final String CODE_RESPONSE_COMMITTED = "RESPONSE_COMMITTED";
+
+    private final ExceptionUnwrapper unwrapper;
+    private final ErrorResponseWriter responseWriter;
+    private final ErrorPathResolver pathResolver;
+    private final StructuredErrorLog structuredLog;
+    private final UpstreamFailureAggregator upstreamFailures;
+    private final ObjLongConsumer<UpstreamFailure> upstreamFailureSummary = this::logUpstreamFailureSummary;
+    private final TraceInclusionPolicy tracePolicy;
+    private final HeavyHitters codeHeavyHitters;
+    private final HeavyHitters pathHeavyHitters;
+    private final ScannerErrors scannerErrors;
+    private final WebErrorProperties.Messages messages;
+    private final ValidationErrors validationErrors;
+    private final LongPollingTimeouts longPollingTimeouts;
+    private final TransientErrors transientErrors;
+    private ErrorMessageResolver messageResolver;
+
+    /**
+     * 
+     */
+    public ErrorControllerAdvice() {
+        this(new WebErrorProperties(), (ObjectMapper) null);
+    }
+
+    /**
+     * @param properties
+     * @param objectMapper
+     * @param traceTokenVerifier
+     */
+    @Autowired
+    public ErrorControllerAdvice(WebErrorProperties properties, ObjectProvider<ObjectMapper> objectMapper, ObjectProvider<TraceTokenVerifier> traceTokenVerifier) {
+        this(properties, objectMapper.getIfAvailable(), traceTokenVerifier.getIfAvailable());
+    }
+
+    /**
+     * @param properties
+     * @param objectMapper
+     */
+    public ErrorControllerAdvice(WebErrorProperties properties, ObjectMapper objectMapper) {
+        this(properties, objectMapper, null);
+    }
+
+    /**
+     * @param properties
+     * @param objectMapper
+     * @param traceTokenVerifier
+     */
+    public ErrorControllerAdvice(WebErrorProperties properties, ObjectMapper objectMapper, TraceTokenVerifier traceTokenVerifier) {
+        this.tracePolicy = new TraceInclusionPolicy(properties.getTrace(), traceTokenVerifier);
+        this.unwrapper = ExceptionUnwrapper.from(properties.getUnwrap());
+        this.pathResolver = new ErrorPathResolver(properties.getPath());
+        this.structuredLog = properties.getLog().isStructured() ? new StructuredErrorLog(properties.getLog().getMaxFrames()) : null;
+        this.upstreamFailures = properties.getUpstreamFailures().isEnabled()
+                ? new UpstreamFailureAggregator(properties.getUpstreamFailures().getMaxEntries(), properties.getUpstreamFailures().getWindow().toMillis(), properties.getUpstreamFailures().isDigestBody())
+                : null;
+        this.codeHeavyHitters = createHeavyHitters(properties.getHeavyHitters());
+        this.pathHeavyHitters = createHeavyHitters(properties.getHeavyHitters());
+        this.responseWriter = properties.getDirectWrite().isEnabled() && objectMapper != null ? new ErrorResponseWriter(objectMapper) : null;
+        this.scannerErrors = new ScannerErrors(responseWriter);
+        this.messages = properties.getMessages();
+        this.validationErrors = new ValidationErrors(properties.getValidation().getMaxErrors());
+        this.longPollingTimeouts = new LongPollingTimeouts(properties.getLongPolling());
+        this.transientErrors = new TransientErrors(properties.getTransientErrors());
+    }
+
+    private static final HeavyHitters createHeavyHitters(WebErrorProperties.HeavyHitters properties) {
+        return properties.isEnabled()
+                ? new HeavyHitters(properties.getTop(), properties.getWidth(), properties.getDepth(), properties.getWindow().toMillis(), properties.getSlots())
+                : null;
+    }
+
+    /**
+     * Creates the cached resolution of the localized messages, warmed with the configured error codes
+     */
+    @Override
+    public void setMessageSource(MessageSource messageSource) {
+        super.setMessageSource(messageSource);
+        if (messages.isEnabled() && messageSource != null) {
+            final ErrorMessageResolver resolver = new ErrorMessageResolver(messageSource, messages.getMaxEntries());
+            resolver.warmUp(messages.getCodes(), CollectionUtils.isEmpty(messages.getLocales()) ? List.of(Locale.getDefault()) : messages.getLocales());
+            this.messageResolver = resolver;
+        }
+    }
 
     @SuppressWarnings("java:S2638")
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatusCode status, WebRequest webRequest) {
-        log(ex);
-        return handleExceptionInternal(ex, buildApiError(webRequest, status.value(), CODE_VALIDATION_FAILED, null, ex.getBindingResult().getAllErrors()), HttpHeaders.EMPTY, status, webRequest);
+        return handleValidationErrors(ex, validationErrors.getErrors(ex.getBindingResult().getAllErrors()), status, webRequest);
+    }
+
+    @SuppressWarnings("java:S2638")
+    @Override
+    protected ResponseEntity<Object> handleHandlerMethodValidationException(HandlerMethodValidationException ex, HttpHeaders headers, HttpStatusCode status, WebRequest webRequest) {
+        return handleValidationErrors(ex, validationErrors.getErrors(ex), status, webRequest);
+    }
+
+    private ResponseEntity<Object> handleConstraintViolationException(Exception ex, WebRequest webRequest) {
+        return handleValidationErrors(ex, validationErrors.getConstraintViolationErrors(ex), HttpStatus.BAD_REQUEST, webRequest);
+    }
+
+    /**
+     * Validation failures (request body, method parameters, constraint violations): same ApiErrors, logged without stack trace
+     * @param ex
+     * @param errors
+     * @param status
+     * @param webRequest
+     * @return
+     */
+    private ResponseEntity<Object> handleValidationErrors(Exception ex, List<ObjectError> errors, HttpStatusCode status, WebRequest webRequest) {
+        log(ex, webRequest, status, CODE_VALIDATION_FAILED, false, false);
+        return handleExceptionInternal(ex, buildApiError(webRequest, status.value(), CODE_VALIDATION_FAILED, null, errors), HttpHeaders.EMPTY, status, webRequest);
     }
 
     @SuppressWarnings("java:S2638")
     @Override
     protected ResponseEntity<Object> handleHttpMessageNotReadable(HttpMessageNotReadableException ex,
             HttpHeaders headers, HttpStatusCode status, WebRequest webRequest) {
-        log(ex);
+        log(ex, webRequest, status, CODE_MESSAGE_READ_FAILED);
         return handleGlobalException(ex, webRequest, CODE_MESSAGE_READ_FAILED, HttpStatus.valueOf(status.value()));
     }
 
-    @SuppressWarnings("java:S2638")
     @Override
-    protected ResponseEntity<Object> handleAsyncRequestTimeoutException(AsyncRequestTimeoutException ex,
+    protected ResponseEntity<Object> handleNoResourceFoundException(NoResourceFoundException ex,
+            HttpHeaders headers, HttpStatusCode status, WebRequest webRequest) {
+        return handleScannerError(scannerErrors.getNotFound(), headers, status, webRequest);
+    }
+
+    @Override
+    protected ResponseEntity<Object> handleHttpRequestMethodNotSupported(HttpRequestMethodNotSupportedException ex,
+            HttpHeaders headers, HttpStatusCode status, WebRequest webRequest) {
+        return handleScannerError(scannerErrors.getMethodNotSupported(), headers, status, webRequest);
+    }
+
+    @Override
+    protected ResponseEntity<Object> handleHttpMediaTypeNotSupported(HttpMediaTypeNotSupportedException ex,
             HttpHeaders headers, HttpStatusCode status, WebRequest webRequest) {
-        logAsyncTaskError(ex, webRequest);
-        if (webRequest instanceof ServletWebRequest servletWebRequest) {
+        return handleScannerError(scannerErrors.getMediaTypeNotSupported(), headers, status, webRequest);
+    }
+
+    /**
+     * Scanner traffic: precomputed body without path, no logging
+     * @param error
+     * @param headers
+     * @param status
+     * @param webRequest
+     * @return
+     */
+    private ResponseEntity<Object> handleScannerError(ScannerErrors.ScannerError error, HttpHeaders headers, HttpStatusCode status, WebRequest webRequest) {
+        final ApiErrorBase body = error.increment();
+        if (webRequest instanceof ServletWebRequest servletWebRequest && servletWebRequest.getResponse() != null) {
             final HttpServletResponse response = servletWebRequest.getResponse();
-            if (response != null && response.isCommitted()) {
+            if (response.isCommitted()) {
+                return null;
+            }
+            if (error.getSerializedBody() != null && writeDirect(error.getSerializedBody(), headers, status, servletWebRequest)) {
                 return null;
             }
         }
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    @SuppressWarnings("java:S2638")
+    @Override
+    protected ResponseEntity<Object> handleAsyncRequestTimeoutException(AsyncRequestTimeoutException ex,
+            HttpHeaders headers, HttpStatusCode status, WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servletWebRequest
+                && longPollingTimeouts.isLongPolling(servletWebRequest.getRequest())
+                && CommittedResponses.getCommittedResponse(webRequest) == null) {
+            return longPollingTimeouts.timeout();
+        }
+        logAsyncTaskError(ex, webRequest, status);
         return handleGlobalException(ex, webRequest, HttpStatus.valueOf(status.value()));
     }
 
+    @Override
+    protected ResponseEntity<Object> handleExceptionInternal(Exception ex, Object body, HttpHeaders headers,
+            HttpStatusCode statusCode, WebRequest webRequest) {
+        final HttpServletResponse committedResponse = CommittedResponses.getCommittedResponse(webRequest);
+        if (committedResponse != null) {
+            return handleCommitted(ex, (ServletWebRequest) webRequest, committedResponse);
+        }
+        if (codeHeavyHitters != null && body instanceof ApiErrorBase apiError) {
+            final long now = System.nanoTime();
+            codeHeavyHitters.add(apiError.getCode(), now);
+            pathHeavyHitters.add(getPathPattern(webRequest), now);
+        }
+        if (responseWriter != null
+                && body instanceof ApiErrorBase
+                && webRequest instanceof ServletWebRequest servletWebRequest
+                && servletWebRequest.getResponse() != null
+                && writeDirect(body, headers, statusCode, servletWebRequest)) {
+            return null;
+        }
+        return super.handleExceptionInternal(ex, body, headers, statusCode, webRequest);
+    }
+
+    private boolean writeDirect(byte[] body, HttpHeaders headers, HttpStatusCode statusCode, ServletWebRequest webRequest) {
+        try {
+            return responseWriter.write(body, headers, statusCode, webRequest.getRequest(), webRequest.getResponse());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean writeDirect(Object body, HttpHeaders headers, HttpStatusCode statusCode, ServletWebRequest webRequest) {
+        try {
+            return responseWriter.write(body, headers, statusCode, webRequest.getRequest(), webRequest.getResponse());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * @param ex
      * @param webRequest
@@ -98,8 +296,14 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(BasicRuntimeException.class)
     public ResponseEntity<Object> handleBasicRuntimeException(BasicRuntimeException ex, WebRequest webRequest) {
-        log(ex);
-        return handleGlobalException(ex, webRequest, ex.getCode(), getStatus(ex));
+        final HttpStatus status = getStatus(ex);
+        log(ex, webRequest, status, ex.getCode(), false, !(ex instanceof Stackless));
+        if (messageResolver != null && status != HttpStatus.NO_CONTENT) {
+            return handleGlobalException(ex, webRequest, ex.getCode(),
+                    messageResolver.resolve(ex.getCode(), getMessage(ex, status), LocaleContextHolder.getLocale()),
+                    status, false, null);
+        }
+        return handleGlobalException(ex, webRequest, ex.getCode(), status);
     }
 
     /**
@@ -109,11 +313,26 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(RestClientResponseException.class)
     public ResponseEntity<Object> handleRestClientResponseException(RestClientResponseException ex, WebRequest webRequest){
-        log(ex);
+        final long now = System.nanoTime();
+        if (upstreamFailures != null) {
+            upstreamFailures.flushIfDue(now, upstreamFailureSummary);
+        }
+        final UpstreamFailure failure = upstreamFailures != null ? upstreamFailures.get(ex) : null;
+        final String message;
+        if (failure == null) {
+            log(ex, webRequest, HttpStatus.INTERNAL_SERVER_ERROR, CODE_EXTERNAL_REST_CALL_FAILED);
+            message = ex.getMessage() + " | " + StringUtils.limitLength(ex.getResponseBodyAsString(), 10000);
+        } else {
+            final long previousWindowCount = failure.increment(now);
+            if (previousWindowCount >= 0) {
+                logUpstreamFailure(ex, webRequest, failure, previousWindowCount);
+            }
+            message = failure.getMessage();
+        }
         return handleGlobalException(ex, webRequest,
                 CODE_EXTERNAL_REST_CALL_FAILED,
-                ex.getMessage() + " | " + StringUtils.limitLength(ex.getResponseBodyAsString(), 10000),
-                HttpStatus.INTERNAL_SERVER_ERROR, true, 15);
+                message,
+                HttpStatus.INTERNAL_SERVER_ERROR, tracePolicy.isIncluded(webRequest), 15);
     }
 
     /**
@@ -123,7 +342,7 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(TaskRejectedException.class)
     public ResponseEntity<Object> handleTaskRejectedException(TaskRejectedException ex, WebRequest webRequest) {
-        logAsyncTaskError(ex, webRequest);
+        logAsyncTaskError(ex, webRequest, HttpStatus.SERVICE_UNAVAILABLE);
         return handleGlobalException(ex, webRequest, HttpStatus.SERVICE_UNAVAILABLE);
     }
 
@@ -134,8 +353,64 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleGlobalException(Exception ex, WebRequest webRequest) {
-        log(ex);
-        return handleGlobalException(ex, webRequest, getDefaultStatus(ex), isDefaultStackTraces(ex));
+        final Throwable cause = unwrapper.unwrap(ex);
+        if (cause instanceof BasicRuntimeException basicRuntimeException) {
+            return handleBasicRuntimeException(basicRuntimeException, webRequest);
+        }
+        if (cause instanceof RestClientResponseException restClientResponseException) {
+            return handleRestClientResponseException(restClientResponseException, webRequest);
+        }
+        if (cause instanceof TaskRejectedException taskRejectedException) {
+            return handleTaskRejectedException(taskRejectedException, webRequest);
+        }
+        if (ValidationErrors.isConstraintViolationException(cause)) {
+            return handleConstraintViolationException((Exception) cause, webRequest);
+        }
+        final HttpStatus transientStatus = transientErrors.getStatus(cause);
+        if (transientStatus != null) {
+            return handleTransientError(cause instanceof Exception causeException ? causeException : ex, webRequest, transientStatus);
+        }
+        // status, code and trace of the unwrapped exception, the log keeps the whole chain
+        final Exception unwrapped = cause instanceof Exception causeException ? causeException : ex;
+        final HttpStatus status = getDefaultStatus(unwrapped);
+        log(ex, webRequest, status, unwrapped.getClass().getName());
+        return handleGlobalException(unwrapped, webRequest, status, isDefaultStackTraces(unwrapped) && tracePolicy.isIncluded(webRequest));
+    }
+
+    /**
+     * Error after the response is committed: no body, SSE stream ended with an error event, one log (with trace) per aborted stream
+     * (the servlet API does not give the bytes written, the Content-Length is logged if known)
+     * @param ex
+     * @param webRequest
+     * @param response
+     * @return
+     */
+    private ResponseEntity<Object> handleCommitted(Exception ex, ServletWebRequest webRequest, HttpServletResponse response) {
+        final String code = ex instanceof BasicRuntimeException basicRuntimeException ? basicRuntimeException.getCode() : ex.getClass().getName();
+        if (CommittedResponses.abort(webRequest.getRequest(), response, code) && log.isWarnEnabled()) {
+            if (structuredLog != null) {
+                structuredLog.warn(log, ex, getPathPattern(webRequest), response.getStatus(), CODE_RESPONSE_COMMITTED, true);
+            } else {
+                final String contentLength = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+                log.warn(getLogMessage(ex, webRequest, true) + " - response committed" + (contentLength != null ? " (Content-Length " + contentLength + ")" : ""), ex);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Connectivity and timeout errors: 503 / 504 with Retry-After, without trace, sampled logging without stack trace
+     * @param ex
+     * @param webRequest
+     * @param status
+     * @return
+     */
+    private ResponseEntity<Object> handleTransientError(Exception ex, WebRequest webRequest, HttpStatus status) {
+        final String code = ex.getClass().getName();
+        if (transientErrors.isLogged()) {
+            log(ex, webRequest, status, code, true, false);
+        }
+        return handleExceptionInternal(ex, buildApiError(webRequest, status.value(), code, getMessage(ex, status)), transientErrors.getHeaders(), status, webRequest);
     }
 
     private ResponseEntity<Object> handleGlobalException(Exception ex, WebRequest webRequest, HttpStatus status) {
@@ -162,21 +437,42 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
         return stackTraces ? ex.getStackTrace() : null;
     }
 
-    private final void logAsyncTaskError(Exception ex, WebRequest webRequest) {
-        log(ex, webRequest, true, false);
+    private final void logUpstreamFailure(RestClientResponseException ex, WebRequest webRequest, UpstreamFailure failure, long previousWindowCount) {
+        if (previousWindowCount > 0) {
+            logUpstreamFailureSummary(failure, previousWindowCount);
+        }
+        log(ex, webRequest, HttpStatus.INTERNAL_SERVER_ERROR, CODE_EXTERNAL_REST_CALL_FAILED);
     }
 
-    private final void log(Exception ex) {
-        log(ex, null, false);
+    private final void logUpstreamFailureSummary(UpstreamFailure failure, long previousWindowCount) {
+        if (log.isWarnEnabled()) {
+            log.warn("{} more failures of the upstream {} with status {} in the previous window ({} in total)",
+                    previousWindowCount, failure.getHost(), failure.getStatus(), failure.getCount());
+        }
     }
 
-    private final void log(Exception ex, WebRequest webRequest, boolean withPath) {
-        log(ex, webRequest, withPath, true);
+    private final void logAsyncTaskError(Exception ex, WebRequest webRequest, HttpStatusCode status) {
+        log(ex, webRequest, status, ex.getClass().getName(), true, false);
     }
 
-    private final void log(Exception ex, WebRequest webRequest, boolean withPath, boolean withException) {
-        if (log.isWarnEnabled()) {
-            if (withException) {
+    private final void log(Exception ex, WebRequest webRequest, HttpStatusCode status, String code) {
+        log(ex, webRequest, status, code, false, true);
+    }
+
+    /**
+     * Error logging, skipped once the response is committed (logged once with its trace by handleCommitted)
+     * @param ex
+     * @param webRequest
+     * @param status
+     * @param code
+     * @param withPath
+     * @param withException
+     */
+    private final void log(Exception ex, WebRequest webRequest, HttpStatusCode status, String code, boolean withPath, boolean withException) {
+        if (log.isWarnEnabled() && CommittedResponses.getCommittedResponse(webRequest) == null) {
+            if (structuredLog != null) {
+                structuredLog.warn(log, ex, getPathPattern(webRequest), status.value(), code, withException);
+            } else if (withException) {
                 log.warn(getLogMessage(ex, webRequest, withPath), ex);
             } else {
                 log.warn(getLogMessage(ex, webRequest, withPath));
@@ -184,7 +480,7 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
         }
     }
 
-    private static final String getLogMessage(Exception ex, WebRequest webRequest, boolean withPath) {
+    private final String getLogMessage(Exception ex, WebRequest webRequest, boolean withPath) {
         return withPath ? ex.getClass().getName() + " - " + getPath(webRequest) : ex.getClass().getName();
     }
 
@@ -204,46 +500,45 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
         return HttpStatus.INTERNAL_SERVER_ERROR;
     }
 
-    private static final ApiErrorBase buildApiError(WebRequest request, int status, String code, String message) {
+    private final ApiErrorBase buildApiError(WebRequest request, int status, String code, String message) {
         return new ApiErrorBase(getPath(request), status, code, message);
     }
 
-    private static final ApiErrorBase buildApiError(WebRequest request, int status, String code, String message, List<ObjectError> errors) {
+    private final ApiErrorBase buildApiError(WebRequest request, int status, String code, String message, List<ObjectError> errors) {
         if (!CollectionUtils.isEmpty(errors)) {
+            if (messageResolver != null) {
+                final ErrorMessageResolver resolver = messageResolver;
+                final Locale locale = LocaleContextHolder.getLocale();
+                return new ApiErrors(getPath(request), status, code, message, errors, error -> resolver.resolve(error, locale));
+            }
             return new ApiErrors(getPath(request), status, code, message, errors);
         }
         return buildApiError(request, status, code, message);
     }
 
-    private static final ApiErrorBase buildApiError(WebRequest request, int status, String code, String message, StackTraceElement[] stackTraces, Integer maxStackTraceElement) {
+    private final ApiErrorBase buildApiError(WebRequest request, int status, String code, String message, StackTraceElement[] stackTraces, Integer maxStackTraceElement) {
         if (!ObjectUtils.isEmpty(stackTraces)) {
             return new ApiErrorTrace(getPath(request), status, code, message, ArrayUtils.limit(stackTraces, maxStackTraceElement));
         }
         return buildApiError(request, status, code, message);
     }
 
-    private static final String getPath(HttpServletRequest request) {
-        if (request == null) {
+    private static final String getPathPattern(WebRequest request) {
+        if (!(request instanceof ServletWebRequest)) {
             return null;
         }
-        final StringBuilder sb = new StringBuilder(request.getRequestURI());
-        final String query = request.getQueryString();
-        if (org.springframework.util.StringUtils.hasLength(query)) {
-            sb.append('?');
-            sb.append(query);
-        }
-        return sb.toString();
+        return ErrorPathResolver.getPattern(((ServletWebRequest) request).getRequest());
     }
 
-    private static final String getPath(WebRequest request) {
+    private final String getPath(WebRequest request) {
         if (!(request instanceof ServletWebRequest)) {
             return null;
         }
-        return getPath(((ServletWebRequest) request).getRequest());
+        return pathResolver.resolve(((ServletWebRequest) request).getRequest());
     }
 
     private static final boolean isDefaultStackTraces(Exception e) {
-        return !isAccessDeniedException(e);
+        return !(e instanceof Stackless) && !isAccessDeniedException(e);
     }
 
     private static final HttpStatus getDefaultStatus(Exception e) {
@@ -257,4 +552,55 @@ public class ErrorControllerAdvice extends ResponseEntityExceptionHandler {
         return ClassUtils.isClass(e, "org.springframework.security.access.AccessDeniedException");
     }
 
+    /**
+     * Logs the summaries of the upstream failure windows ended without a later failure
+     */
+    void flushUpstreamFailures() {
+        if (upstreamFailures != null) {
+            upstreamFailures.flush(System.nanoTime(), upstreamFailureSummary);
+        }
+    }
+
+    /**
+     * @return the aggregated upstream failures, null if disabled
+     */
+    UpstreamFailureAggregator getUpstreamFailures() {
+        return upstreamFailures;
+    }
+
+    /**
+     * @return the top error codes, null if disabled
+     */
+    HeavyHitters getCodeHeavyHitters() {
+        return codeHeavyHitters;
+    }
+
+    /**
+     * @return the top route patterns in error, null if disabled
+     */
+    HeavyHitters getPathHeavyHitters() {
+        return pathHeavyHitters;
+    }
+
+    /**
+     * @return the cached resolution of the localized messages, null if disabled
+     */
+    ErrorMessageResolver getMessageResolver() {
+        return messageResolver;
+    }
+
+    /**
+     * @return the counted timeouts of the long-polling handlers
+     */
+    LongPollingTimeouts getLongPollingTimeouts() {
+        return longPollingTimeouts;
+    }
+
+    /**
+     * @return the counted scanner errors
+     */
+    ScannerErrors getScannerErrors() {
+        return scannerErrors;
+    }
+
 }
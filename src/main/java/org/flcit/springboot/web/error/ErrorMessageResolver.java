@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.MessageSource;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Resolves the localized error messages from the MessageSource with a cache per (code, locale):
+ * the message for the codes without arguments (quotes of the MessageFormat syntax already unescaped),
+ * the compiled MessageFormat for the others (cloned on use, MessageFormat is not thread safe) and the absence of message.
+ * The cache is bounded: beyond its maximum size the messages are resolved without cache.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class ErrorMessageResolver {
+
+    private static final Object NO_MESSAGE = new Object();
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final MessageSource messageSource;
+    private final int maxEntries;
+    private final Map<Key, Object> messages = new ConcurrentHashMap<>();
+
+    ErrorMessageResolver(MessageSource messageSource, int maxEntries) {
+        this.messageSource = messageSource;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Fills the cache with the given error codes only, the bounded cache keeps its room for them
+     * @param codes
+     * @param locales
+     */
+    void warmUp(Collection<String> codes, Collection<Locale> locales) {
+        if (codes == null || locales == null) {
+            return;
+        }
+        for (String code: codes) {
+            for (Locale locale: locales) {
+                getMessage(code.trim(), locale);
+            }
+        }
+    }
+
+    /**
+     * @param code
+     * @param defaultMessage
+     * @param locale
+     * @return the message of the code, the default message if none or if the message expects arguments
+     */
+    String resolve(String code, String defaultMessage, Locale locale) {
+        final Object message = code != null ? getMessage(code, locale) : NO_MESSAGE;
+        if (message instanceof String value) {
+            return value;
+        }
+        return defaultMessage;
+    }
+
+    /**
+     * @param resolvable
+     * @param locale
+     * @return the message of the first resolved code (with its formatted arguments), the default message if none
+     */
+    String resolve(MessageSourceResolvable resolvable, Locale locale) {
+        final String[] codes = resolvable.getCodes();
+        if (codes != null) {
+            final Object[] arguments = resolvable.getArguments();
+            for (String code: codes) {
+                final Object message = getMessage(code, locale);
+                if (message instanceof CompiledMessage compiled) {
+                    return format(compiled, arguments, locale);
+                }
+                if (message instanceof String value) {
+                    return value;
+                }
+            }
+        }
+        return resolvable.getDefaultMessage();
+    }
+
+    private String format(CompiledMessage compiled, Object[] arguments, Locale locale) {
+        if (ObjectUtils.isEmpty(arguments)) {
+            return ((MessageFormat) compiled.format().clone()).format(NO_ARGUMENTS);
+        }
+        final Object[] resolved = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            resolved[i] = arguments[i] instanceof MessageSourceResolvable resolvable ? resolve(resolvable, locale) : arguments[i];
+        }
+        return ((MessageFormat) compiled.format().clone()).format(resolved);
+    }
+
+    private Object getMessage(String code, Locale locale) {
+        final Key key = new Key(code, locale);
+        Object message = messages.get(key);
+        if (message == null) {
+            message = compile(messageSource.getMessage(code, null, null, locale), locale);
+            if (messages.size() < maxEntries) {
+                messages.putIfAbsent(key, message);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * A single quote outside of the MessageFormat syntax is kept, as the MessageSource does for the messages without arguments
+     * @param pattern message without arguments resolution
+     * @param locale
+     * @return the formatted message if it has no argument, the compiled MessageFormat otherwise
+     */
+    private static final Object compile(String pattern, Locale locale) {
+        if (pattern == null) {
+            return NO_MESSAGE;
+        }
+        if (pattern.indexOf('{') == -1 && !pattern.contains("''")) {
+            return pattern;
+        }
+        try {
+            final MessageFormat format = new MessageFormat(pattern, locale);
+            return format.getFormatsByArgumentIndex().length == 0 ? format.format(NO_ARGUMENTS) : new CompiledMessage(format);
+        } catch (IllegalArgumentException e) {
+            return pattern;
+        }
+    }
+
+    int size() {
+        return messages.size();
+    }
+
+    private record Key(String code, Locale locale) { }
+
+    private record CompiledMessage(MessageFormat format) { }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the path of the error: the request URI with its query,
+ * or the matched route pattern with an allowlisted and capped query.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class ErrorPathResolver {
+
+    static final String UNMATCHED = "UNMATCHED";
+
+    private final boolean pattern;
+    private final Set<String> queryParams;
+    private final int maxQueryLength;
+
+    ErrorPathResolver(WebErrorProperties.Path properties) {
+        this.pattern = properties.getMode() == WebErrorProperties.PathMode.PATTERN;
+        this.queryParams = properties.getQueryParams() != null ? new HashSet<>(properties.getQueryParams()) : Set.of();
+        this.maxQueryLength = properties.getMaxQueryLength();
+    }
+
+    String resolve(HttpServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        return pattern ? getPatternPath(request) : getUriPath(request);
+    }
+
+    /**
+     * Bounded key (heavy hitters, structured log): the unmatched requests (404 scans) share one key
+     * @param request
+     * @return the matched route pattern, or {@link #UNMATCHED} if no handler matched
+     */
+    static final String getPattern(HttpServletRequest request) {
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern instanceof String value ? value : UNMATCHED;
+    }
+
+    /**
+     * @param request
+     * @return the matched route pattern, or the request URI without query if no handler matched
+     */
+    static final String getPatternOrUri(HttpServletRequest request) {
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern instanceof String value ? value : request.getRequestURI();
+    }
+
+    private String getPatternPath(HttpServletRequest request) {
+        final String path = getPatternOrUri(request);
+        final String query = request.getQueryString();
+        if (queryParams.isEmpty() || maxQueryLength <= 0 || !StringUtils.hasLength(query)) {
+            return path;
+        }
+        StringBuilder sb = null;
+        int start = 0;
+        while (start < query.length()) {
+            int end = query.indexOf('&', start);
+            if (end == -1) {
+                end = query.length();
+            }
+            if (end > start && isAllowed(query, start, end)) {
+                final int length = sb == null ? 0 : sb.length() - path.length();
+                if (length + end - start + 1 > maxQueryLength) {
+                    break;
+                }
+                if (sb == null) {
+                    sb = new StringBuilder(path.length() + Math.min(query.length(), maxQueryLength) + 1).append(path);
+                }
+                sb.append(length == 0 ? '?' : '&').append(query, start, end);
+            }
+            start = end + 1;
+        }
+        return sb == null ? path : sb.toString();
+    }
+
+    private boolean isAllowed(String query, int start, int end) {
+        int nameEnd = query.indexOf('=', start);
+        if (nameEnd == -1 || nameEnd > end) {
+            nameEnd = end;
+        }
+        return queryParams.contains(query.substring(start, nameEnd));
+    }
+
+    private static final String getUriPath(HttpServletRequest request) {
+        final String uri = request.getRequestURI();
+        final String query = request.getQueryString();
+        if (!StringUtils.hasLength(query)) {
+            return uri;
+        }
+        return new StringBuilder(uri.length() + query.length() + 1)
+                .append(uri)
+                .append('?')
+                .append(query)
+                .toString();
+    }
+
+}
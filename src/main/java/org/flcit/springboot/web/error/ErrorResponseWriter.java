@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes the error body directly to the servlet response,
+ * without the content negotiation and the HttpMessageConverter lookup
+ * (the ResponseBodyAdvice beans and the configured converters are not applied).
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class ErrorResponseWriter {
+
+    private static final String CONTENT_TYPE = MediaType.APPLICATION_JSON_VALUE;
+
+    private static final int MAX_POOLED_BUFFERS = 64;
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectWriter writer;
+    private final BlockingQueue<Buffer> buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+    ErrorResponseWriter(ObjectMapper objectMapper) {
+        this.writer = createWriter(objectMapper);
+    }
+
+    /**
+     * The default Jackson recycler pool is thread local: without reuse on the virtual threads.
+     * The writer uses a copy of the mapper with a shared lock-free pool (ConcurrentLinkedDeque).
+     * The servlet output stream is not closed by the writer.
+     * @param objectMapper
+     * @return
+     */
+    private static final ObjectWriter createWriter(ObjectMapper objectMapper) {
+        try {
+            final ObjectMapper mapper = objectMapper.copy();
+            mapper.getFactory().setRecyclerPool(JsonRecyclerPools.sharedConcurrentDequePool());
+            return mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } catch (IllegalStateException e) {
+            // subclass of ObjectMapper without copy()
+            return objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+    }
+
+    /**
+     * Body serialized into a pooled buffer (no byte array per error) then written with its Content-Length
+     * @param body
+     * @param headers
+     * @param status
+     * @param request
+     * @param response
+     * @return true if the body has been written, false if the normal negotiation must be used
+     * @throws IOException
+     */
+    boolean write(Object body, HttpHeaders headers, HttpStatusCode status, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!isJsonAcceptable(request.getHeader(HttpHeaders.ACCEPT))
+                || !writeHeaders(headers, status, response)) {
+            return false;
+        }
+        final Buffer buffer = acquire();
+        try {
+            writer.writeValue(buffer, body);
+            response.setContentLength(buffer.count);
+            response.getOutputStream().write(buffer.bytes, 0, buffer.count);
+        } finally {
+            release(buffer);
+        }
+        response.flushBuffer();
+        return true;
+    }
+
+    private Buffer acquire() {
+        final Buffer buffer = buffers.poll();
+        if (buffer == null) {
+            return new Buffer();
+        }
+        buffer.count = 0;
+        return buffer;
+    }
+
+    private void release(Buffer buffer) {
+        if (buffer.bytes.length <= MAX_POOLED_BUFFER_SIZE) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * @param body already serialized body
+     * @param headers
+     * @param status
+     * @param request
+     * @param response
+     * @return true if the body has been written, false if the normal negotiation must be used
+     * @throws IOException
+     */
+    boolean write(byte[] body, HttpHeaders headers, HttpStatusCode status, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!isJsonAcceptable(request.getHeader(HttpHeaders.ACCEPT))) {
+            return false;
+        }
+        return write(body, headers, status, response);
+    }
+
+    /**
+     * @param body
+     * @param headers
+     * @param status
+     * @param response
+     * @return
+     * @throws IOException
+     */
+    boolean write(byte[] body, HttpHeaders headers, HttpStatusCode status, HttpServletResponse response) throws IOException {
+        if (!writeHeaders(headers, status, response)) {
+            return false;
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+        return true;
+    }
+
+    private static final boolean writeHeaders(HttpHeaders headers, HttpStatusCode status, HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return false;
+        }
+        response.setStatus(status.value());
+        if (!headers.isEmpty()) {
+            for (Map.Entry<String, List<String>> header: headers.entrySet()) {
+                for (String value: header.getValue()) {
+                    response.addHeader(header.getKey(), value);
+                }
+            }
+        }
+        response.setContentType(CONTENT_TYPE);
+        return true;
+    }
+
+    /**
+     * Jackson reuses the buffers of its generators through the recycler pool
+     * @param body
+     * @return
+     * @throws JsonProcessingException
+     */
+    byte[] serialize(Object body) throws JsonProcessingException {
+        return writer.writeValueAsBytes(body);
+    }
+
+    static final boolean isJsonAcceptable(String accept) {
+        if (!org.springframework.util.StringUtils.hasText(accept)) {
+            return true;
+        }
+        try {
+            for (MediaType mediaType: MediaType.parseMediaTypes(accept)) {
+                if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return false;
+    }
+
+    /**
+     * Growable byte buffer without synchronization (no pinning of the virtual threads, unlike ByteArrayOutputStream)
+     */
+    private static final class Buffer extends OutputStream {
+
+        private byte[] bytes = new byte[1024];
+        private int count;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, capacity));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+/**
+ * Actuator endpoint of the error handling statistics: /actuator/errors
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+@Endpoint(id = "errors")
+public class ErrorsEndpoint {
+
+    static final String UPSTREAMS = "upstreams";
+    static final String HEAVY_HITTERS = "heavy-hitters";
+    static final String SCANNERS = "scanners";
+    static final String LONG_POLLING_TIMEOUTS = "long-polling-timeouts";
+
+    private final ErrorControllerAdvice errorControllerAdvice;
+
+    /**
+     * @param errorControllerAdvice
+     */
+    public ErrorsEndpoint(ErrorControllerAdvice errorControllerAdvice) {
+        this.errorControllerAdvice = errorControllerAdvice;
+    }
+
+    /**
+     * @return
+     */
+    @ReadOperation
+    public Map<String, Object> errors() {
+        final Map<String, Object> errors = new LinkedHashMap<>();
+        final UpstreamFailureAggregator upstreamFailures = errorControllerAdvice.getUpstreamFailures();
+        if (upstreamFailures != null) {
+            errorControllerAdvice.flushUpstreamFailures();
+            errors.put(UPSTREAMS, upstreamFailures.getFailures());
+        }
+        final HeavyHitters codeHeavyHitters = errorControllerAdvice.getCodeHeavyHitters();
+        if (codeHeavyHitters != null) {
+            final Map<String, Object> heavyHitters = new LinkedHashMap<>();
+            heavyHitters.put("codes", codeHeavyHitters.getTop());
+            heavyHitters.put("paths", errorControllerAdvice.getPathHeavyHitters().getTop());
+            errors.put(HEAVY_HITTERS, heavyHitters);
+        }
+        errors.put(SCANNERS, errorControllerAdvice.getScannerErrors().getCounts());
+        errors.put(LONG_POLLING_TIMEOUTS, errorControllerAdvice.getLongPollingTimeouts().getCount());
+        return errors;
+    }
+
+    /**
+     * @param name
+     * @return
+     */
+    @ReadOperation
+    public Object errors(@Selector String name) {
+        return errors().get(name);
+    }
+
+}
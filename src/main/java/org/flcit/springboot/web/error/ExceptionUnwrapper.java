@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unwraps the wrapper exceptions (CompletionException, ExecutionException...) to the real cause.
+ * The wrapper decision is cached per exception class.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class ExceptionUnwrapper {
+
+    private final Set<String> wrapperTypes;
+    private final int maxDepth;
+    private final Map<Class<?>, Boolean> wrappers = new ConcurrentHashMap<>();
+
+    ExceptionUnwrapper(Collection<String> wrapperTypes, int maxDepth) {
+        this.wrapperTypes = wrapperTypes != null ? new HashSet<>(wrapperTypes) : Set.of();
+        this.maxDepth = maxDepth;
+    }
+
+    static final ExceptionUnwrapper from(WebErrorProperties.Unwrap properties) {
+        return new ExceptionUnwrapper(properties.getWrapperTypes(), properties.isEnabled() ? properties.getMaxDepth() : 0);
+    }
+
+    Throwable unwrap(Throwable ex) {
+        Throwable current = ex;
+        for (int depth = 0; depth < maxDepth && isWrapper(current.getClass()); depth++) {
+            final Throwable cause = current.getCause();
+            if (cause == null || isVisited(ex, current, cause)) {
+                break;
+            }
+            current = cause;
+        }
+        return current;
+    }
+
+    boolean isWrapper(Class<?> type) {
+        Boolean wrapper = wrappers.get(type);
+        if (wrapper == null) {
+            wrapper = isWrapperType(type);
+            wrappers.putIfAbsent(type, wrapper);
+        }
+        return wrapper;
+    }
+
+    private boolean isWrapperType(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            if (wrapperTypes.contains(current.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final boolean isVisited(Throwable from, Throwable to, Throwable cause) {
+        for (Throwable current = from; current != to; current = current.getCause()) {
+            if (current == cause) {
+                return true;
+            }
+        }
+        return to == cause;
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded memory streaming top-K of keys (error codes, route patterns) over a sliding window.
+ * The window is split in slots, each slot holds a Count-Min sketch (atomic counters, no lock)
+ * and a bounded set of candidates for the top: the counts are approximate,
+ * overestimated by at most the error bound (e / width * total) with a probability of 1 - e^-depth.
+ * A slot is replaced by a fresh one (compare and set) by the first thread reaching its new time slot, nobody waits:
+ * only an update still in flight on the replaced slot is lost.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class HeavyHitters {
+
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+        0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int top;
+    private final int width;
+    private final int depth;
+    private final int maxCandidates;
+    private final long slotNanos;
+    private final AtomicReferenceArray<Slot> slots;
+
+    HeavyHitters(int top, int width, int depth, long windowMillis, int slotCount) {
+        this.top = top;
+        this.width = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+        this.depth = Math.max(1, Math.min(SEEDS.length, depth));
+        this.maxCandidates = Math.max(top * 8, 16);
+        this.slotNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(windowMillis) / Math.max(1, slotCount));
+        this.slots = new AtomicReferenceArray<>(Math.max(1, slotCount));
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, new Slot(EMPTY, this.width * this.depth));
+        }
+    }
+
+    void add(String key) {
+        add(key, System.nanoTime());
+    }
+
+    void add(String key, long now) {
+        if (key == null) {
+            return;
+        }
+        final Slot slot = getSlot(Math.floorDiv(now, slotNanos));
+        final int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, slot.counters.incrementAndGet(index(hash, row)));
+        }
+        slot.total.increment();
+        offer(slot, key, estimate);
+    }
+
+    /**
+     * @return the top keys of the window with their approximate counts
+     */
+    Map<String, Object> getTop() {
+        return getTop(System.nanoTime());
+    }
+
+    Map<String, Object> getTop(long now) {
+        final long epoch = Math.floorDiv(now, slotNanos);
+        final List<Slot> live = new ArrayList<>(slots.length());
+        final Set<String> keys = new HashSet<>();
+        long total = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            final Slot slot = slots.get(i);
+            if (slot.epoch == EMPTY || epoch - slot.epoch >= slots.length() || slot.epoch > epoch) {
+                continue;
+            }
+            live.add(slot);
+            total += slot.total.sum();
+            keys.addAll(slot.candidates);
+        }
+        // a key is estimated in every live slot, even those where it is not a candidate: never underestimated
+        final Map<String, Long> counts = new HashMap<>(keys.size());
+        for (String key: keys) {
+            final int hash = key.hashCode();
+            long count = 0;
+            for (Slot slot: live) {
+                count += estimate(slot, hash);
+            }
+            counts.put(key, count);
+        }
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        final long errorBound = (long) Math.ceil(Math.E / width * total);
+        final List<Map<String, Object>> values = new ArrayList<>(Math.min(top, entries.size()));
+        for (Map.Entry<String, Long> entry: entries.subList(0, Math.min(top, entries.size()))) {
+            final Map<String, Object> value = new LinkedHashMap<>();
+            value.put("key", entry.getKey());
+            value.put("count", entry.getValue());
+            value.put("errorBound", errorBound);
+            values.add(value);
+        }
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("windowSeconds", TimeUnit.NANOSECONDS.toSeconds(slotNanos * slots.length()));
+        result.put("total", total);
+        result.put("errorBound", errorBound);
+        result.put("confidence", 1 - Math.exp(-depth));
+        result.put("top", values);
+        return result;
+    }
+
+    private Slot getSlot(long epoch) {
+        final int index = (int) Math.floorMod(epoch, (long) slots.length());
+        final Slot slot = slots.get(index);
+        if (slot.epoch >= epoch) {
+            return slot;
+        }
+        final Slot fresh = new Slot(epoch, width * depth);
+        return slots.compareAndSet(index, slot, fresh) ? fresh : slots.get(index);
+    }
+
+    private void offer(Slot slot, String key, long estimate) {
+        if (slot.candidates.contains(key)) {
+            return;
+        }
+        if (slot.candidates.size() < maxCandidates) {
+            slot.candidates.add(key);
+            return;
+        }
+        if (estimate <= slot.threshold) {
+            return;
+        }
+        String min = null;
+        long minEstimate = Long.MAX_VALUE;
+        for (String candidate: slot.candidates) {
+            final long candidateEstimate = estimate(slot, candidate.hashCode());
+            if (candidateEstimate < minEstimate) {
+                min = candidate;
+                minEstimate = candidateEstimate;
+            }
+        }
+        slot.threshold = minEstimate;
+        if (min != null && estimate > minEstimate && slot.candidates.remove(min)) {
+            slot.candidates.add(key);
+        }
+    }
+
+    private long estimate(Slot slot, int hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, slot.counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash ^ SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        return row * width + (int) (h & (width - 1));
+    }
+
+    private static final class Slot {
+
+        private final long epoch;
+        private final AtomicLongArray counters;
+        private final LongAdder total = new LongAdder();
+        private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+        private volatile long threshold;
+
+        Slot(long epoch, int size) {
+            this.epoch = epoch;
+            this.counters = new AtomicLongArray(size);
+        }
+
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Async request timeouts of the long-polling handlers (annotation LongPolling or route patterns):
+ * answered with a precomputed response and counted apart from the errors.
+ * The annotation lookup is cached per handler bean type and method (a method inherited by several controllers
+ * is long-polling only for the controllers annotated).
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class LongPollingTimeouts {
+
+    private static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final List<String> paths;
+    private final ResponseEntity<Object> response;
+    private final Map<Handler, Boolean> handlers = new ConcurrentHashMap<>();
+    private final LongAdder count = new LongAdder();
+
+    LongPollingTimeouts(WebErrorProperties.LongPolling properties) {
+        this.paths = properties.getPaths() != null ? List.copyOf(properties.getPaths()) : List.of();
+        this.response = createResponse(properties);
+    }
+
+    private static final ResponseEntity<Object> createResponse(WebErrorProperties.LongPolling properties) {
+        final ResponseEntity.BodyBuilder builder = ResponseEntity.status(properties.getStatus());
+        if (properties.getBody() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.parseMediaType(properties.getContentType())).body(properties.getBody());
+    }
+
+    /**
+     * @param request
+     * @return true if the request is handled by a long-polling handler
+     */
+    boolean isLongPolling(HttpServletRequest request) {
+        final Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod handlerMethod && isLongPolling(handlerMethod)) {
+            return true;
+        }
+        if (paths.isEmpty()) {
+            return false;
+        }
+        final String pattern = ErrorPathResolver.getPatternOrUri(request);
+        for (String path: paths) {
+            if (path.equals(pattern) || PATH_MATCHER.match(path, pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isLongPolling(HandlerMethod handlerMethod) {
+        final Handler handler = new Handler(handlerMethod.getBeanType(), handlerMethod.getMethod());
+        Boolean longPolling = handlers.get(handler);
+        if (longPolling == null) {
+            longPolling = handlerMethod.hasMethodAnnotation(LongPolling.class)
+                    || AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), LongPolling.class);
+            handlers.putIfAbsent(handler, longPolling);
+        }
+        return longPolling;
+    }
+
+    /**
+     * To call only when the response is returned (response not committed)
+     * @return the precomputed response of the timeout, counted
+     */
+    ResponseEntity<Object> timeout() {
+        count.increment();
+        return response;
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    private record Handler(Class<?> beanType, Method method) { }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.flcit.springboot.web.error.domain.ApiErrorBase;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Precomputed errors of the scanner traffic (unknown resources, unsupported methods and media types):
+ * same body for all the requests (without path), serialized once, without logging but counted.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class ScannerErrors {
+
+    private final ScannerError notFound;
+    private final ScannerError methodNotSupported;
+    private final ScannerError mediaTypeNotSupported;
+
+    ScannerErrors(ErrorResponseWriter responseWriter) {
+        this.notFound = new ScannerError(NoResourceFoundException.class, HttpStatus.NOT_FOUND, responseWriter);
+        this.methodNotSupported = new ScannerError(HttpRequestMethodNotSupportedException.class, HttpStatus.METHOD_NOT_ALLOWED, responseWriter);
+        this.mediaTypeNotSupported = new ScannerError(HttpMediaTypeNotSupportedException.class, HttpStatus.UNSUPPORTED_MEDIA_TYPE, responseWriter);
+    }
+
+    ScannerError getNotFound() {
+        return notFound;
+    }
+
+    ScannerError getMethodNotSupported() {
+        return methodNotSupported;
+    }
+
+    ScannerError getMediaTypeNotSupported() {
+        return mediaTypeNotSupported;
+    }
+
+    /**
+     * @return the count of each scanner error
+     */
+    Map<String, Long> getCounts() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put(notFound.getCode(), notFound.getCount());
+        counts.put(methodNotSupported.getCode(), methodNotSupported.getCount());
+        counts.put(mediaTypeNotSupported.getCode(), mediaTypeNotSupported.getCount());
+        return counts;
+    }
+
+    static final class ScannerError {
+
+        private final ApiErrorBase body;
+        private final byte[] serializedBody;
+        private final LongAdder count = new LongAdder();
+
+        private ScannerError(Class<? extends Exception> type, HttpStatus status, ErrorResponseWriter responseWriter) {
+            this.body = new ApiErrorBase(null, status.value(), type.getName(), status.getReasonPhrase());
+            this.serializedBody = serialize(body, responseWriter);
+        }
+
+        private static final byte[] serialize(ApiErrorBase body, ErrorResponseWriter responseWriter) {
+            if (responseWriter == null) {
+                return null;
+            }
+            try {
+                return responseWriter.serialize(body);
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+        }
+
+        ApiErrorBase increment() {
+            count.increment();
+            return body;
+        }
+
+        String getCode() {
+            return body.getCode();
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the serialized body, null without direct write
+         */
+        byte[] getSerializedBody() {
+            return serializedBody;
+        }
+
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.spi.LoggingEventBuilder;
+
+/**
+ * Logs the handled error as one event with key-value pairs (SLF4J 2 fluent API).
+ * The JSON encoding is done by the structured encoder of the logging backend
+ * (logging.structured.format.console / file of Spring Boot, logstash encoder...)
+ * without any intermediate log message building.
+ * The cause chain is logged as its classes, with the message and the compact frames of the root cause
+ * (the frames of the exception and of its root cause share the frame budget).
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class StructuredErrorLog {
+
+    static final String KEY_STATUS = "error.status";
+    static final String KEY_CODE = "error.code";
+    static final String KEY_PATH = "error.path";
+    static final String KEY_EXCEPTION = "error.exception";
+    static final String KEY_FINGERPRINT = "error.fingerprint";
+    static final String KEY_FRAMES = "error.frames";
+    static final String KEY_CAUSES = "error.causes";
+    static final String KEY_ROOT_CAUSE_MESSAGE = "error.root-cause.message";
+    static final String KEY_ROOT_CAUSE_FRAMES = "error.root-cause.frames";
+
+    private static final int MAX_CAUSE_DEPTH = 10;
+    private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+
+    private final int maxFrames;
+
+    StructuredErrorLog(int maxFrames) {
+        this.maxFrames = Math.max(0, maxFrames);
+    }
+
+    void warn(Logger log, Exception ex, String path, int status, String code, boolean withFrames) {
+        final String exception = ex.getClass().getName();
+        final String[] causes = getCauses(ex);
+        final Throwable rootCause = causes.length > 0 ? getRootCause(ex, causes.length) : null;
+        final StackTraceElement[] frames = withFrames ? getFrames(ex, rootCause != null ? maxFrames / 2 : maxFrames) : NO_FRAMES;
+        final StackTraceElement[] rootCauseFrames = withFrames && rootCause != null ? getFrames(rootCause, maxFrames - frames.length) : NO_FRAMES;
+        int fingerprint = fingerprint(ex.getClass(), frames);
+        if (rootCause != null) {
+            fingerprint = 31 * fingerprint + fingerprint(rootCause.getClass(), rootCauseFrames);
+        }
+        LoggingEventBuilder event = log.atWarn()
+                .setMessage(exception)
+                .addKeyValue(KEY_STATUS, status)
+                .addKeyValue(KEY_CODE, code)
+                .addKeyValue(KEY_EXCEPTION, exception)
+                .addKeyValue(KEY_FINGERPRINT, Integer.toHexString(fingerprint));
+        if (path != null) {
+            event = event.addKeyValue(KEY_PATH, path);
+        }
+        if (frames.length > 0) {
+            event = event.addKeyValue(KEY_FRAMES, frames);
+        }
+        if (rootCause != null) {
+            event = event.addKeyValue(KEY_CAUSES, causes);
+            if (rootCause.getMessage() != null) {
+                event = event.addKeyValue(KEY_ROOT_CAUSE_MESSAGE, rootCause.getMessage());
+            }
+            if (rootCauseFrames.length > 0) {
+                event = event.addKeyValue(KEY_ROOT_CAUSE_FRAMES, rootCauseFrames);
+            }
+        }
+        event.log();
+    }
+
+    private static final StackTraceElement[] getFrames(Throwable ex, int max) {
+        final StackTraceElement[] trace = ex.getStackTrace();
+        return trace.length > max ? Arrays.copyOf(trace, max) : trace;
+    }
+
+    /**
+     * @param ex
+     * @return the classes of the causes (at most 10), from the direct cause to the root cause
+     */
+    private static final String[] getCauses(Throwable ex) {
+        int count = 0;
+        for (Throwable cause = ex.getCause(); cause != null && count < MAX_CAUSE_DEPTH; cause = next(cause)) {
+            count++;
+        }
+        final String[] causes = new String[count];
+        Throwable cause = ex.getCause();
+        for (int i = 0; i < count; i++) {
+            causes[i] = cause.getClass().getName();
+            cause = next(cause);
+        }
+        return causes;
+    }
+
+    private static final Throwable getRootCause(Throwable ex, int depth) {
+        Throwable cause = ex.getCause();
+        for (int i = 1; i < depth; i++) {
+            cause = next(cause);
+        }
+        return cause;
+    }
+
+    private static final Throwable next(Throwable cause) {
+        return cause.getCause() != cause ? cause.getCause() : null;
+    }
+
+    /**
+     * @param type
+     * @param frames
+     * @return a hash of the exception class and of the frames (class, method, line), stable across the JVMs
+     */
+    static final int fingerprint(Class<?> type, StackTraceElement[] frames) {
+        int hash = type.getName().hashCode();
+        for (StackTraceElement frame: frames) {
+            hash = 31 * hash + frame.getClassName().hashCode();
+            hash = 31 * hash + frame.getMethodName().hashCode();
+            hash = 31 * hash + frame.getLineNumber();
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Decides the inclusion of the stack trace in the error: off by default,
+ * on for the requests with a verified debug header, otherwise sampled.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class TraceInclusionPolicy {
+
+    private final String header;
+    private final TraceTokenVerifier verifier;
+    private final double sampleRate;
+
+    TraceInclusionPolicy(WebErrorProperties.Trace properties, TraceTokenVerifier verifier) {
+        this.header = StringUtils.hasText(properties.getHeader()) ? properties.getHeader() : null;
+        this.verifier = verifier != null ? verifier : tokenVerifier(properties.getToken());
+        this.sampleRate = properties.getSampleRate();
+    }
+
+    boolean isIncluded(WebRequest webRequest) {
+        if (header != null
+                && webRequest instanceof ServletWebRequest servletWebRequest
+                && isVerified(servletWebRequest.getRequest())) {
+            return true;
+        }
+        return isSampled();
+    }
+
+    private boolean isVerified(HttpServletRequest request) {
+        final String token = request.getHeader(header);
+        return token != null && verifier.verify(token, request);
+    }
+
+    private boolean isSampled() {
+        if (sampleRate <= 0) {
+            return false;
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * @param expected
+     * @return verifier of the configured token (constant time comparison), refusing all if no token is configured
+     */
+    static final TraceTokenVerifier tokenVerifier(String expected) {
+        if (!StringUtils.hasLength(expected)) {
+            return (token, request) -> false;
+        }
+        final byte[] expectedBytes = expected.getBytes(StandardCharsets.UTF_8);
+        return (token, request) -> MessageDigest.isEqual(expectedBytes, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Verifies the debug token sent in the trace header (web.error.trace.header)
+ * to include the stack trace in the error.
+ * Declare a bean to replace the default verifier (equality with web.error.trace.token).
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+@FunctionalInterface
+public interface TraceTokenVerifier {
+
+    /**
+     * @param token value of the trace header
+     * @param request
+     * @return true to include the stack trace
+     */
+    boolean verify(String token, HttpServletRequest request);
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Taxonomy of the transient errors (connectivity, timeouts) detected by class name (and super classes):
+ * 503 Service Unavailable or 504 Gateway Timeout with a Retry-After header, without trace, sampled logging.
+ * Only the errors of an outbound call (a cause chain containing an outbound client exception) are transient,
+ * an inbound timeout (slow request body) keeps its own mapping.
+ * The status is cached per exception class, a timeout cause of a connectivity error gives a 504.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class TransientErrors {
+
+    private static final int MAX_CAUSE_DEPTH = 5;
+
+    private final Map<String, HttpStatus> types = new HashMap<>();
+    private final Set<String> outboundTypes = new HashSet<>();
+    private final Map<Class<?>, Type> cache = new ConcurrentHashMap<>();
+    private final HttpHeaders headers;
+    private final double logSampleRate;
+
+    TransientErrors(WebErrorProperties.TransientErrors properties) {
+        addTypes(properties.getServiceUnavailable(), HttpStatus.SERVICE_UNAVAILABLE);
+        addTypes(properties.getGatewayTimeout(), HttpStatus.GATEWAY_TIMEOUT);
+        if (properties.getOutbound() != null) {
+            outboundTypes.addAll(properties.getOutbound());
+        }
+        this.headers = createHeaders(properties.getRetryAfter() != null ? properties.getRetryAfter().toSeconds() : 0);
+        this.logSampleRate = properties.getLogSampleRate();
+    }
+
+    private void addTypes(List<String> names, HttpStatus status) {
+        if (names != null) {
+            for (String name: names) {
+                types.put(name, status);
+            }
+        }
+    }
+
+    private static final HttpHeaders createHeaders(long retryAfter) {
+        if (retryAfter <= 0) {
+            return HttpHeaders.EMPTY;
+        }
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    /**
+     * @param ex
+     * @return 503 or 504 for a transient error of an outbound call (504 if a cause is a timeout), null otherwise
+     */
+    HttpStatus getStatus(Throwable ex) {
+        if (types.isEmpty() || outboundTypes.isEmpty()) {
+            return null;
+        }
+        HttpStatus status = null;
+        boolean outbound = false;
+        Throwable current = ex;
+        for (int depth = 0; depth < MAX_CAUSE_DEPTH && current != null; depth++) {
+            final Type type = getType(current.getClass());
+            outbound |= type.outbound();
+            if (type.status() == HttpStatus.GATEWAY_TIMEOUT || (status == null && type.status() == HttpStatus.SERVICE_UNAVAILABLE)) {
+                status = type.status();
+            }
+            if (status == HttpStatus.GATEWAY_TIMEOUT && outbound) {
+                return status;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+            current = current.getCause();
+        }
+        return outbound ? status : null;
+    }
+
+    private Type getType(Class<?> type) {
+        Type result = cache.get(type);
+        if (result == null) {
+            result = new Type(getTypeStatus(type), isOutbound(type));
+            cache.putIfAbsent(type, result);
+        }
+        return result;
+    }
+
+    /**
+     * @param type
+     * @return status of the class or of its nearest mapped super class, 500 if not transient
+     */
+    private HttpStatus getTypeStatus(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            final HttpStatus status = types.get(current.getName());
+            if (status != null) {
+                return status;
+            }
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * @param type
+     * @return true if the class or a super class is an outbound client exception
+     */
+    private boolean isOutbound(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            if (outboundTypes.contains(current.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the Retry-After header
+     */
+    HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    boolean isLogged() {
+        if (logSampleRate <= 0) {
+            return false;
+        }
+        return logSampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < logSampleRate;
+    }
+
+    private record Type(HttpStatus status, boolean outbound) { }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+
+import org.flcit.commons.core.util.StringUtils;
+import org.springframework.web.client.RestClientResponseException;
+
+/**
+ * Aggregates the RestClientResponseException by upstream host + status + body digest (SHA-256, optional):
+ * the truncated body and the error message are built once per upstream failure,
+ * the occurrences are counted in striped counters (LongAdder) over time windows.
+ * The ended windows are flushed at most once per window on the next failure (and on the actuator read),
+ * a failure idle for a whole window is evicted.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class UpstreamFailureAggregator {
+
+    static final String UNKNOWN_HOST = "unknown";
+    private static final String REQUEST_FOR = "request for \"";
+    private static final int MAX_BODY_LENGTH = 10000;
+    private static final MessageDigest SHA_256 = getSha256();
+
+    private final int maxEntries;
+    private final long windowNanos;
+    private final boolean digestBody;
+    private final Map<Key, UpstreamFailure> failures = new ConcurrentHashMap<>();
+    private final AtomicLong lastFlush = new AtomicLong(System.nanoTime());
+
+    UpstreamFailureAggregator(int maxEntries, long windowMillis) {
+        this(maxEntries, windowMillis, true);
+    }
+
+    UpstreamFailureAggregator(int maxEntries, long windowMillis, boolean digestBody) {
+        this.maxEntries = maxEntries;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.digestBody = digestBody;
+    }
+
+    /**
+     * @param ex
+     * @return the aggregated failure, null if the maximum of aggregated failures is reached
+     */
+    UpstreamFailure get(RestClientResponseException ex) {
+        final String message = ex.getMessage();
+        final String host = getHost(message);
+        final int status = ex.getStatusCode().value();
+        final Key key = new Key(host, status, digestBody ? digest(ex.getResponseBodyAsByteArray()) : null,
+                UNKNOWN_HOST.equals(host) ? message : null);
+        UpstreamFailure failure = failures.get(key);
+        if (failure == null) {
+            if (failures.size() >= maxEntries) {
+                return null;
+            }
+            failure = new UpstreamFailure(host, status, buildMessage(ex, host), windowNanos);
+            final UpstreamFailure previous = failures.putIfAbsent(key, failure);
+            if (previous != null) {
+                failure = previous;
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Flushes the ended windows if the last flush is older than a window
+     * @param now {@link System#nanoTime()}
+     * @param summary failure and occurrences of its ended window, not logged yet
+     */
+    void flushIfDue(long now, ObjLongConsumer<UpstreamFailure> summary) {
+        final long last = lastFlush.get();
+        if (now - last >= windowNanos && lastFlush.compareAndSet(last, now)) {
+            flush(now, summary);
+        }
+    }
+
+    /**
+     * Ends the windows elapsed without a later failure to report their last occurrences,
+     * evicts the failures without occurrence in their ended window
+     * @param now {@link System#nanoTime()}
+     * @param summary failure and occurrences of its ended window, not logged yet
+     */
+    void flush(long now, ObjLongConsumer<UpstreamFailure> summary) {
+        for (Map.Entry<Key, UpstreamFailure> entry: failures.entrySet()) {
+            final UpstreamFailure failure = entry.getValue();
+            final long windowCount = failure.flush(now);
+            if (windowCount > 0) {
+                summary.accept(failure, windowCount);
+            } else if (windowCount == 0) {
+                failures.remove(entry.getKey(), failure);
+            }
+        }
+    }
+
+    /**
+     * @return the failures counts by upstream
+     */
+    List<Map<String, Object>> getFailures() {
+        final List<Map<String, Object>> result = new ArrayList<>(failures.size());
+        for (UpstreamFailure failure: failures.values()) {
+            final Map<String, Object> value = new LinkedHashMap<>();
+            value.put("host", failure.getHost());
+            value.put("status", failure.getStatus());
+            value.put("message", failure.getMessage());
+            value.put("count", failure.getCount());
+            result.add(value);
+        }
+        return result;
+    }
+
+    /**
+     * The message of the exception holds the full URL of the request: for a known host,
+     * the cached message only holds the status and the host to be shared by all the requests.
+     * @param ex
+     * @param host
+     * @return
+     */
+    static final String buildMessage(RestClientResponseException ex, String host) {
+        final String body = StringUtils.limitLength(ex.getResponseBodyAsString(), MAX_BODY_LENGTH);
+        if (UNKNOWN_HOST.equals(host)) {
+            return ex.getMessage() + " | " + body;
+        }
+        return ex.getStatusCode().value() + " " + ex.getStatusText() + " on " + host + " | " + body;
+    }
+
+    /**
+     * @param message message of DefaultResponseErrorHandler: 404 Not Found on GET request for "http://host/path": ...
+     * @return
+     */
+    static final String getHost(String message) {
+        if (message == null) {
+            return UNKNOWN_HOST;
+        }
+        final int uri = message.indexOf(REQUEST_FOR);
+        if (uri == -1) {
+            return UNKNOWN_HOST;
+        }
+        final int scheme = message.indexOf("://", uri);
+        if (scheme == -1) {
+            return UNKNOWN_HOST;
+        }
+        final int start = scheme + 3;
+        int end = start;
+        while (end < message.length() && !isHostEnd(message.charAt(end))) {
+            end++;
+        }
+        return end > start ? message.substring(start, end) : UNKNOWN_HOST;
+    }
+
+    /**
+     * @param body
+     * @return the SHA-256 digest of the body: two different bodies never share the cached message
+     */
+    static final ByteBuffer digest(byte[] body) {
+        MessageDigest digest;
+        try {
+            digest = (MessageDigest) SHA_256.clone();
+        } catch (CloneNotSupportedException e) {
+            digest = getSha256();
+        }
+        return ByteBuffer.wrap(digest.digest(body));
+    }
+
+    /**
+     * The provider lookup is done once, the digest of each failure is a clone of this instance (no thread local)
+     * @return
+     */
+    private static final MessageDigest getSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final boolean isHostEnd(char c) {
+        return c == '/' || c == ':' || c == '?' || c == '#' || c == '"';
+    }
+
+    /**
+     * Failure of one upstream
+     */
+    static final class UpstreamFailure {
+
+        private final String host;
+        private final int status;
+        private final String message;
+        private final long windowNanos;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder windowCount = new LongAdder();
+        private final AtomicLong windowStart;
+
+        UpstreamFailure(String host, int status, String message, long windowNanos) {
+            this.host = host;
+            this.status = status;
+            this.message = message;
+            this.windowNanos = windowNanos;
+            this.windowStart = new AtomicLong(System.nanoTime() - windowNanos);
+        }
+
+        /**
+         * Counts one occurrence
+         * @param now {@link System#nanoTime()}
+         * @return the occurrences of the previous window if this occurrence opens a new window (to log), -1 otherwise
+         */
+        long increment(long now) {
+            count.increment();
+            final long start = windowStart.get();
+            if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+                return windowCount.sumThenReset();
+            }
+            windowCount.increment();
+            return -1;
+        }
+
+        /**
+         * Ends the current window if it has elapsed: the next occurrence opens a new window
+         * @param now {@link System#nanoTime()}
+         * @return the occurrences of the ended window, -1 if the window is still open
+         */
+        long flush(long now) {
+            final long start = windowStart.get();
+            if (now - start >= windowNanos && windowStart.compareAndSet(start, now - windowNanos)) {
+                return windowCount.sumThenReset();
+            }
+            return -1;
+        }
+
+        String getHost() {
+            return host;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        String getMessage() {
+            return message;
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+    }
+
+    /**
+     * The message (holding the request URL) is only a part of the key for an unknown host,
+     * the body digest is null if the body is not a part of the key
+     */
+    private record Key(String host, int status, ByteBuffer bodyDigest, String message) {
+
+    }
+
+}
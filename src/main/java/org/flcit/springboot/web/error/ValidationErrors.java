@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.flcit.commons.core.util.ClassUtils;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.core.MethodParameter;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+import org.springframework.validation.method.MethodValidationResult;
+import org.springframework.validation.method.ParameterErrors;
+import org.springframework.validation.method.ParameterValidationResult;
+
+/**
+ * Converts the validation failures (binding result, method validation, constraint violations)
+ * to the errors of ApiErrors, capped to a maximum number of errors.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class ValidationErrors {
+
+    private static final String CONSTRAINT_VIOLATION_EXCEPTION = "jakarta.validation.ConstraintViolationException";
+
+    private final int maxErrors;
+
+    ValidationErrors(int maxErrors) {
+        this.maxErrors = Math.max(0, maxErrors);
+    }
+
+    /**
+     * @param errors
+     * @return the first errors
+     */
+    List<ObjectError> getErrors(List<ObjectError> errors) {
+        return errors != null && errors.size() > maxErrors ? errors.subList(0, maxErrors) : errors;
+    }
+
+    /**
+     * @param result
+     * @return the first errors of the parameters (object name: method, field: parameter) and then of the cross-parameter constraints
+     */
+    List<ObjectError> getErrors(MethodValidationResult result) {
+        final List<ObjectError> errors = new ArrayList<>();
+        final String objectName = result.getMethod().getName();
+        for (ParameterValidationResult parameterResult: result.getParameterValidationResults()) {
+            if (parameterResult instanceof ParameterErrors parameterErrors) {
+                for (ObjectError error: parameterErrors.getAllErrors()) {
+                    if (!add(errors, error)) {
+                        return errors;
+                    }
+                }
+                continue;
+            }
+            final String field = getParameterName(parameterResult.getMethodParameter());
+            for (MessageSourceResolvable error: parameterResult.getResolvableErrors()) {
+                if (!add(errors, new FieldError(objectName, field, parameterResult.getArgument(), false, error.getCodes(), error.getArguments(), error.getDefaultMessage()))) {
+                    return errors;
+                }
+            }
+        }
+        for (MessageSourceResolvable error: result.getCrossParameterValidationResults()) {
+            if (!add(errors, new ObjectError(objectName, error.getCodes(), error.getArguments(), error.getDefaultMessage()))) {
+                return errors;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @param ex jakarta.validation.ConstraintViolationException
+     * @return the first errors of the constraint violations
+     */
+    List<ObjectError> getConstraintViolationErrors(Exception ex) {
+        return ConstraintViolationErrors.getErrors(ex, maxErrors);
+    }
+
+    /**
+     * The Bean Validation API is optional: the exception is detected by its class name
+     * @param ex
+     * @return
+     */
+    static final boolean isConstraintViolationException(Throwable ex) {
+        return ClassUtils.isClass(ex, CONSTRAINT_VIOLATION_EXCEPTION);
+    }
+
+    private boolean add(List<ObjectError> errors, ObjectError error) {
+        if (errors.size() >= maxErrors) {
+            return false;
+        }
+        errors.add(error);
+        return true;
+    }
+
+    private static final String getParameterName(MethodParameter parameter) {
+        final String name = parameter.getParameterName();
+        return name != null ? name : "arg" + parameter.getParameterIndex();
+    }
+
+}
@@ -0,0 +1,780 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+@ConfigurationProperties(prefix = "web.error")
+public class WebErrorProperties {
+
+    private final Unwrap unwrap = new Unwrap();
+    private final DirectWrite directWrite = new DirectWrite();
+    private final Path path = new Path();
+    private final Log log = new Log();
+    private final UpstreamFailures upstreamFailures = new UpstreamFailures();
+    private final Trace trace = new Trace();
+    private final HeavyHitters heavyHitters = new HeavyHitters();
+    private final Messages messages = new Messages();
+    private final Validation validation = new Validation();
+    private final LongPolling longPolling = new LongPolling();
+    private final TransientErrors transientErrors = new TransientErrors();
+
+    /**
+     * @return
+     */
+    public Unwrap getUnwrap() {
+        return unwrap;
+    }
+
+    /**
+     * @return
+     */
+    public DirectWrite getDirectWrite() {
+        return directWrite;
+    }
+
+    /**
+     * @return
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return
+     */
+    public Log getLog() {
+        return log;
+    }
+
+    /**
+     * @return
+     */
+    public UpstreamFailures getUpstreamFailures() {
+        return upstreamFailures;
+    }
+
+    /**
+     * @return
+     */
+    public Trace getTrace() {
+        return trace;
+    }
+
+    /**
+     * @return
+     */
+    public HeavyHitters getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    /**
+     * @return
+     */
+    public Messages getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return
+     */
+    public Validation getValidation() {
+        return validation;
+    }
+
+    /**
+     * @return
+     */
+    public LongPolling getLongPolling() {
+        return longPolling;
+    }
+
+    /**
+     * @return
+     */
+    public TransientErrors getTransientErrors() {
+        return transientErrors;
+    }
+
+    /**
+     * Unwrapping of the wrapper exceptions (async, proxies) to handle the real cause
+     */
+    public static class Unwrap {
+
+        private boolean enabled = true;
+        private int maxDepth = 5;
+        private List<String> wrapperTypes = new ArrayList<>(Arrays.asList(
+                "java.util.concurrent.CompletionException",
+                "java.util.concurrent.ExecutionException",
+                "java.lang.reflect.UndeclaredThrowableException",
+                "java.lang.reflect.InvocationTargetException"));
+
+        /**
+         * @return
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return
+         */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        /**
+         * @param maxDepth
+         */
+        public void setMaxDepth(int maxDepth) {
+            this.maxDepth = maxDepth;
+        }
+
+        /**
+         * @return
+         */
+        public List<String> getWrapperTypes() {
+            return wrapperTypes;
+        }
+
+        /**
+         * @param wrapperTypes
+         */
+        public void setWrapperTypes(List<String> wrapperTypes) {
+            this.wrapperTypes = wrapperTypes;
+        }
+
+    }
+
+    /**
+     * Direct write of the error body to the response (without content negotiation):
+     * the ResponseBodyAdvice beans and the configured HttpMessageConverters are skipped for the error bodies
+     */
+    public static class DirectWrite {
+
+        private boolean enabled;
+
+        /**
+         * @return
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+    }
+
+    /**
+     * Path of the error (body and logs)
+     */
+    public static class Path {
+
+        private PathMode mode = PathMode.URI;
+        private List<String> queryParams = new ArrayList<>();
+        private int maxQueryLength = 256;
+
+        /**
+         * @return
+         */
+        public PathMode getMode() {
+            return mode;
+        }
+
+        /**
+         * @param mode
+         */
+        public void setMode(PathMode mode) {
+            this.mode = mode;
+        }
+
+        /**
+         * @return
+         */
+        public List<String> getQueryParams() {
+            return queryParams;
+        }
+
+        /**
+         * @param queryParams
+         */
+        public void setQueryParams(List<String> queryParams) {
+            this.queryParams = queryParams;
+        }
+
+        /**
+         * @return
+         */
+        public int getMaxQueryLength() {
+            return maxQueryLength;
+        }
+
+        /**
+         * @param maxQueryLength
+         */
+        public void setMaxQueryLength(int maxQueryLength) {
+            this.maxQueryLength = maxQueryLength;
+        }
+
+    }
+
+    /**
+     * Logging of the handled errors
+     */
+    public static class Log {
+
+        private boolean structured;
+        private int maxFrames = 10;
+
+        /**
+         * @return
+         */
+        public boolean isStructured() {
+            return structured;
+        }
+
+        /**
+         * @param structured
+         */
+        public void setStructured(boolean structured) {
+            this.structured = structured;
+        }
+
+        /**
+         * @return
+         */
+        public int getMaxFrames() {
+            return maxFrames;
+        }
+
+        /**
+         * @param maxFrames
+         */
+        public void setMaxFrames(int maxFrames) {
+            this.maxFrames = maxFrames;
+        }
+
+    }
+
+    /**
+     * Aggregation of the RestClientResponseException by upstream
+     */
+    public static class UpstreamFailures {
+
+        private boolean enabled;
+        private int maxEntries = 1000;
+        private Duration window = Duration.ofMinutes(1);
+        private boolean digestBody = true;
+
+        /**
+         * @return
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return
+         */
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        /**
+         * @param maxEntries
+         */
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * @return
+         */
+        public Duration getWindow() {
+            return window;
+        }
+
+        /**
+         * @param window
+         */
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        /**
+         * @return
+         */
+        public boolean isDigestBody() {
+            return digestBody;
+        }
+
+        /**
+         * @param digestBody
+         */
+        public void setDigestBody(boolean digestBody) {
+            this.digestBody = digestBody;
+        }
+
+    }
+
+    /**
+     * Inclusion of the stack trace in the unexpected errors
+     */
+    public static class Trace {
+
+        private String header = "X-Debug-Trace";
+        private String token;
+        private double sampleRate;
+
+        /**
+         * @return
+         */
+        public String getHeader() {
+            return header;
+        }
+
+        /**
+         * @param header
+         */
+        public void setHeader(String header) {
+            this.header = header;
+        }
+
+        /**
+         * @return
+         */
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * @param token
+         */
+        public void setToken(String token) {
+            this.token = token;
+        }
+
+        /**
+         * @return
+         */
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        /**
+         * @param sampleRate
+         */
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+    }
+
+    /**
+     * Streaming top-K of the error codes and of the route patterns (Count-Min sketch)
+     */
+    public static class HeavyHitters {
+
+        private boolean enabled;
+        private int top = 10;
+        private Duration window = Duration.ofMinutes(1);
+        private int slots = 6;
+        private int width = 1024;
+        private int depth = 4;
+
+        /**
+         * @return
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return
+         */
+        public int getTop() {
+            return top;
+        }
+
+        /**
+         * @param top
+         */
+        public void setTop(int top) {
+            this.top = top;
+        }
+
+        /**
+         * @return
+         */
+        public Duration getWindow() {
+            return window;
+        }
+
+        /**
+         * @param window
+         */
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        /**
+         * @return
+         */
+        public int getSlots() {
+            return slots;
+        }
+
+        /**
+         * @param slots
+         */
+        public void setSlots(int slots) {
+            this.slots = slots;
+        }
+
+        /**
+         * @return
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * @param width
+         */
+        public void setWidth(int width) {
+            this.width = width;
+        }
+
+        /**
+         * @return
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @param depth
+         */
+        public void setDepth(int depth) {
+            this.depth = depth;
+        }
+
+    }
+
+    /**
+     * Localized error messages (MessageSource) resolved through a cache
+     */
+    public static class Messages {
+
+        private boolean enabled;
+        private int maxEntries = 1000;
+        private List<String> codes = new ArrayList<>();
+        private List<Locale> locales = new ArrayList<>();
+
+        /**
+         * @return
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return
+         */
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        /**
+         * @param maxEntries
+         */
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * @return
+         */
+        public List<String> getCodes() {
+            return codes;
+        }
+
+        /**
+         * @param codes
+         */
+        public void setCodes(List<String> codes) {
+            this.codes = codes;
+        }
+
+        /**
+         * @return
+         */
+        public List<Locale> getLocales() {
+            return locales;
+        }
+
+        /**
+         * @param locales
+         */
+        public void setLocales(List<Locale> locales) {
+            this.locales = locales;
+        }
+
+    }
+
+    /**
+     * Validation errors (request body, method parameters, constraint violations)
+     */
+    public static class Validation {
+
+        private int maxErrors = 100;
+
+        /**
+         * @return
+         */
+        public int getMaxErrors() {
+            return maxErrors;
+        }
+
+        /**
+         * @param maxErrors
+         */
+        public void setMaxErrors(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+    }
+
+    /**
+     * Async request timeouts of the long-polling handlers (annotation LongPolling or route patterns)
+     */
+    public static class LongPolling {
+
+        private List<String> paths = new ArrayList<>();
+        private int status = 204;
+        private String body;
+        private String contentType = "application/json";
+
+        /**
+         * @return
+         */
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        /**
+         * @param paths
+         */
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        /**
+         * @return
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @param status
+         */
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        /**
+         * @return
+         */
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * @param body
+         */
+        public void setBody(String body) {
+            this.body = body;
+        }
+
+        /**
+         * @return
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @param contentType
+         */
+        public void setContentType(String contentType) {
+            this.contentType = contentType;
+        }
+
+    }
+
+    /**
+     * Transient errors (connectivity, timeouts) answered with 503 / 504 and Retry-After
+     */
+    public static class TransientErrors {
+
+        private List<String> serviceUnavailable = new ArrayList<>(Arrays.asList(
+                "org.springframework.web.client.ResourceAccessException",
+                "org.springframework.jdbc.CannotGetJdbcConnectionException",
+                "java.net.ConnectException"));
+        private List<String> gatewayTimeout = new ArrayList<>(Arrays.asList(
+                "java.net.SocketTimeoutException",
+                "java.net.http.HttpTimeoutException",
+                "org.springframework.dao.QueryTimeoutException"));
+        private List<String> outbound = new ArrayList<>(Arrays.asList(
+                "org.springframework.web.client.RestClientException",
+                "org.springframework.dao.DataAccessException",
+                "java.net.http.HttpTimeoutException"));
+        private Duration retryAfter = Duration.ofSeconds(5);
+        private double logSampleRate = 0.01;
+
+        /**
+         * @return
+         */
+        public List<String> getServiceUnavailable() {
+            return serviceUnavailable;
+        }
+
+        /**
+         * @param serviceUnavailable
+         */
+        public void setServiceUnavailable(List<String> serviceUnavailable) {
+            this.serviceUnavailable = serviceUnavailable;
+        }
+
+        /**
+         * @return
+         */
+        public List<String> getGatewayTimeout() {
+            return gatewayTimeout;
+        }
+
+        /**
+         * @param gatewayTimeout
+         */
+        public void setGatewayTimeout(List<String> gatewayTimeout) {
+            this.gatewayTimeout = gatewayTimeout;
+        }
+
+        /**
+         * @return
+         */
+        public List<String> getOutbound() {
+            return outbound;
+        }
+
+        /**
+         * @param outbound
+         */
+        public void setOutbound(List<String> outbound) {
+            this.outbound = outbound;
+        }
+
+        /**
+         * @return
+         */
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        /**
+         * @param retryAfter
+         */
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+
+        /**
+         * @return
+         */
+        public double getLogSampleRate() {
+            return logSampleRate;
+        }
+
+        /**
+         * @param logSampleRate
+         */
+        public void setLogSampleRate(double logSampleRate) {
+            this.logSampleRate = logSampleRate;
+        }
+
+    }
+
+    /**
+     * 
+     */
+    public enum PathMode {
+        /**
+         * Request URI with the full query
+         */
+        URI,
+        /**
+         * Matched route pattern with the allowlisted query parameters
+         */
+        PATTERN
+    }
+
+}
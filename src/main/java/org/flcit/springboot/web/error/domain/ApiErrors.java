@@ -18,6 +18,7 @@ package org.flcit.springboot.web.error.domain;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 import org.springframework.util.CollectionUtils;
 import org.springframework.validation.FieldError;
@@ -40,15 +41,27 @@ public class ApiErrors extends ApiErrorBase {
      * @param errors
      */
     public ApiErrors(String path, int status, String code, String message, List<ObjectError> errors) {
+        this(path, status, code, message, errors, ObjectError::getDefaultMessage);
+    }
+
+    /**
+     * @param path
+     * @param status
+     * @param code
+     * @param message
+     * @param errors
+     * @param messageResolver message of each error (localized message, default message...)
+     */
+    public ApiErrors(String path, int status, String code, String message, List<ObjectError> errors, Function<ObjectError, String> messageResolver) {
         super(path, status, code, message);
         if (!CollectionUtils.isEmpty(errors)) {
             this.errors = new ArrayList<>(errors.size());
             for (ObjectError error: errors) {
                 Error e = null;
                 if (error instanceof FieldError) {
-                    e = new Error(error.getCode(), error.getObjectName(), ((FieldError)error).getField(), error.getDefaultMessage());
+                    e = new Error(error.getCode(), error.getObjectName(), ((FieldError)error).getField(), messageResolver.apply(error));
                 } else {
-                    e = new Error(error.getCode(), error.getObjectName(), error.getDefaultMessage());
+                    e = new Error(error.getCode(), error.getObjectName(), messageResolver.apply(error));
                 }
                 this.errors.add(e);
             }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error.exception;
+
+import org.flcit.commons.core.exception.BasicRuntimeException;
+
+/**
+ * Functional exception which does not capture its stack trace: cheap to throw.
+ * Create a new instance per throw: a Throwable stays mutable (suppressed exceptions, cause),
+ * a shared instance would carry them from one request to another.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public abstract class StacklessBasicRuntimeException extends BasicRuntimeException implements Stackless {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message
+     */
+    protected StacklessBasicRuntimeException(String message) {
+        super(message);
+    }
+
+    /**
+     * @param code
+     * @param message
+     */
+    protected StacklessBasicRuntimeException(String code, String message) {
+        super(code, message);
+    }
+
+    /**
+     * No stack trace capture
+     */
+    @Override
+    public final Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error.exception;
+
+import org.flcit.springboot.commons.core.http.ResponseStatus;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Stackless functional exception with its HTTP status.
+ * <pre>
+ * throw StacklessResponseStatusException.of(HttpStatus.NOT_FOUND, "PERSON_NOT_FOUND", "Person not found");
+ * </pre>
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class StacklessResponseStatusException extends StacklessBasicRuntimeException implements ResponseStatus {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    /**
+     * @param status
+     * @param code
+     * @param message
+     */
+    public StacklessResponseStatusException(HttpStatus status, String code, String message) {
+        super(code, message);
+        this.status = status.value();
+    }
+
+    /**
+     * @param status
+     * @param code
+     * @param message
+     * @return a new instance
+     */
+    public static final StacklessResponseStatusException of(HttpStatus status, String code, String message) {
+        return new StacklessResponseStatusException(status, code, message);
+    }
+
+    /**
+     *
+     */
+    @Override
+    public int code() {
+        return status;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+class CommittedResponsesTest {
+
+    @Test
+    void getCommittedResponseTest() {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(CommittedResponses.getCommittedResponse(new ServletWebRequest(new MockHttpServletRequest(), response)));
+        assertNull(CommittedResponses.getCommittedResponse(new ServletWebRequest(new MockHttpServletRequest())));
+        response.setCommitted(true);
+        assertSame(response, CommittedResponses.getCommittedResponse(new ServletWebRequest(new MockHttpServletRequest(), response)));
+    }
+
+    @Test
+    void abortEventStreamTest() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE + ";charset=UTF-8");
+        response.getOutputStream().write("data: 1\n\n".getBytes());
+        assertTrue(CommittedResponses.abort(request, response, "CODE\"1"));
+        assertFalse(CommittedResponses.abort(request, response, "CODE"));
+        assertEquals("data: 1\n\nevent: error\ndata: {\"code\":\"CODE\\\"1\"}\n\n", response.getContentAsString());
+    }
+
+    @Test
+    void abortStreamTest() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        assertTrue(CommittedResponses.abort(new MockHttpServletRequest(), response, "CODE"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void isEventStreamTest() {
+        assertTrue(CommittedResponses.isEventStream("text/event-stream"));
+        assertTrue(CommittedResponses.isEventStream("TEXT/EVENT-STREAM;charset=UTF-8"));
+        assertFalse(CommittedResponses.isEventStream(MediaType.APPLICATION_JSON_VALUE));
+        assertFalse(CommittedResponses.isEventStream(null));
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Path;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.metadata.ConstraintDescriptor;
+
+class ConstraintViolationErrorsTest {
+
+    @NotBlank
+    private String name;
+
+    @Test
+    void getErrorsTest() throws Exception {
+        final NotBlank notBlank = ConstraintViolationErrorsTest.class.getDeclaredField("name").getAnnotation(NotBlank.class);
+        final Set<ConstraintViolation<?>> violations = new LinkedHashSet<>();
+        violations.add(violation("createPerson.person.name", notBlank));
+        violations.add(violation("createPerson.person.email", notBlank));
+        final ConstraintViolationException ex = new ConstraintViolationException(violations);
+        final List<ObjectError> errors = ConstraintViolationErrors.getErrors(ex, 10);
+        assertEquals(2, errors.size());
+        final FieldError error = (FieldError) errors.get(0);
+        assertEquals("personService", error.getObjectName());
+        assertEquals("createPerson.person.name", error.getField());
+        assertEquals("NotBlank", error.getCode());
+        assertArrayEquals(new String[] { "NotBlank.personService.createPerson.person.name", "NotBlank.createPerson.person.name", "NotBlank" }, error.getCodes());
+        assertEquals("createPerson.person.name", ((MessageSourceResolvable) error.getArguments()[0]).getDefaultMessage());
+        assertEquals("must not be blank", error.getDefaultMessage());
+        assertEquals(1, ConstraintViolationErrors.getErrors(ex, 1).size());
+        assertTrue(ConstraintViolationErrors.getErrors(ex, 0).isEmpty());
+        assertTrue(ConstraintViolationErrors.getErrors(new ConstraintViolationException(Set.of()), 10).isEmpty());
+    }
+
+    @Test
+    void isConstraintViolationExceptionTest() {
+        assertTrue(ValidationErrors.isConstraintViolationException(new ConstraintViolationException(Set.of())));
+    }
+
+    private static final ConstraintViolation<?> violation(String path, NotBlank constraint) {
+        return proxy(ConstraintViolation.class, Map.of(
+                "getMessage", "must not be blank",
+                "getRootBeanClass", PersonService.class,
+                "getPropertyPath", proxy(Path.class, Map.of("toString", path)),
+                "getInvalidValue", "",
+                "getConstraintDescriptor", proxy(ConstraintDescriptor.class, Map.of("getAnnotation", constraint))));
+    }
+
+    private static final <T> T proxy(Class<T> type, Map<String, Object> values) {
+        return type.cast(Proxy.newProxyInstance(ConstraintViolationErrorsTest.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> values.get(method.getName());
+                }));
+    }
+
+    static final class PersonService { }
+
+}
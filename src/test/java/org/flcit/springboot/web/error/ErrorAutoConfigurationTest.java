@@ -36,7 +36,11 @@ import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.io.support.ResourcePropertySource;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import org.flcit.springboot.commons.test.MockitoBaseTest;
 import org.flcit.springboot.commons.test.util.ContextRunnerUtils;
@@ -86,6 +90,16 @@ class ErrorAutoConfigurationTest implements MockitoBaseTest {
         ContextRunnerUtils.assertHasSingleBean(this.contextRunner, ErrorControllerAdvice.class);
     }
 
+    @Test
+    void errorsEndpointBeanOk() {
+        ContextRunnerUtils.assertHasSingleBean(this.contextRunner.withPropertyValues("management.endpoints.web.exposure.include=errors"), ErrorsEndpoint.class);
+    }
+
+    @Test
+    void errorsEndpointNotExposed() {
+        ContextRunnerUtils.assertDoesNotHaveBean(this.contextRunner, ErrorsEndpoint.class);
+    }
+
     @Test
     void noErrorMvcAutoConfigurationBean() {
         ContextRunnerUtils.assertDoesNotHaveBean(this.contextRunner, ErrorMvcAutoConfiguration.class);
@@ -95,23 +109,66 @@ class ErrorAutoConfigurationTest implements MockitoBaseTest {
     void testEndpointsException() {
         this.contextRunner
         .withUserConfiguration(TestResource.class)
+        .run(context -> assertEndpointsException(context, false));
+    }
+
+    @Test
+    void testEndpointsExceptionDirectWrite() {
+        this.contextRunner
+        .withUserConfiguration(TestResource.class)
+        .withPropertyValues("web.error.direct-write.enabled=true")
+        .run(context -> assertEndpointsException(context, false));
+    }
+
+    @Test
+    void testEndpointsExceptionTraceSampled() {
+        this.contextRunner
+        .withUserConfiguration(TestResource.class)
+        .withPropertyValues("web.error.trace.sample-rate=1")
+        .run(context -> assertEndpointsException(context, true));
+    }
+
+    @Test
+    void testEndpointsExceptionTraceHeader() {
+        this.contextRunner
+        .withUserConfiguration(TestResource.class)
+        .withPropertyValues("web.error.trace.token=debug-token")
         .run(context -> {
-            MvcUtils.assertGetJsonResponse(context, TestResource.TEST_PATH, TestResource.TEST_RESPONSE_VALUE);
-            assertGetJsonResponse(context, TestResource.FUNCTIONAL_EXCEPTION_PATH, API_ERROR_FUNCTIONAL_EXCEPTION);
+            final MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
             ResultActionsUtils.assertArrayNotEmpty(
-                    assertGetJsonResponse(context, TestResource.TECHNICAL_EXCEPTION_PATH, API_ERROR_TECHNICAL_EXCEPTION, false),
+                    mockMvc
+                    .perform(MockMvcRequestBuilders.get(TestResource.TECHNICAL_EXCEPTION_PATH).header("X-Debug-Trace", "debug-token"))
+                    .andExpect(MockMvcResultMatchers.status().isInternalServerError()),
                     "trace");
-            assertGetJsonResponse(context, TestResource.ACCESS_DENIED_EXCEPTION_PATH, API_ERROR_ACCESS_DENIED);
-            assertGetJsonResponse(context, TestResource.METHOD_ARGUMENT_NOT_VALID_EXCEPTION_PATH, API_ERRORS_METHOD_ARGUMENT_NOT_VALID);
-            assertGetJsonResponse(context, TestResource.HTTP_MESSAGE_NOT_READABLE_EXCEPTION_PATH, API_ERROR_HTTP_MESSAGE_NOT_READABLE_EXCEPTION);
-            assertGetJsonResponse(context, TestResource.ASYNC_REQUEST_TIMEOUT_EXCEPTION_PATH, API_ERROR_ASYNC_REQUEST_TIMEOUT_EXCEPTION);
-            assertGetJsonResponse(context, TestResource.TASK_REJECTED_EXCEPTION_PATH, API_ERROR_TASK_REJECTED_EXCEPTION);
-            ResultActionsUtils.assertArrayHasSizeLessOrEqual(
-                    assertGetJsonResponse(context, TestResource.REST_CLIENT_RESPONSE_EXCEPTION_PATH, API_ERROR_REST_CLIENT_RESPONSE_EXCEPTION, false),
-                    "trace", 15);
+            mockMvc
+            .perform(MockMvcRequestBuilders.get(TestResource.TECHNICAL_EXCEPTION_PATH).header("X-Debug-Trace", "invalid-token"))
+            .andExpect(MockMvcResultMatchers.status().isInternalServerError())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.trace").doesNotExist());
         });
     }
 
+    private static final void assertEndpointsException(AssertableWebApplicationContext context, boolean traces) throws Exception {
+        MvcUtils.assertGetJsonResponse(context, TestResource.TEST_PATH, TestResource.TEST_RESPONSE_VALUE);
+        assertGetJsonResponse(context, TestResource.FUNCTIONAL_EXCEPTION_PATH, API_ERROR_FUNCTIONAL_EXCEPTION);
+        final ResultActions technical = assertGetJsonResponse(context, TestResource.TECHNICAL_EXCEPTION_PATH, API_ERROR_TECHNICAL_EXCEPTION, false);
+        if (traces) {
+            ResultActionsUtils.assertArrayNotEmpty(technical, "trace");
+        } else {
+            technical.andExpect(MockMvcResultMatchers.jsonPath("$.trace").doesNotExist());
+        }
+        assertGetJsonResponse(context, TestResource.ACCESS_DENIED_EXCEPTION_PATH, API_ERROR_ACCESS_DENIED);
+        assertGetJsonResponse(context, TestResource.METHOD_ARGUMENT_NOT_VALID_EXCEPTION_PATH, API_ERRORS_METHOD_ARGUMENT_NOT_VALID);
+        assertGetJsonResponse(context, TestResource.HTTP_MESSAGE_NOT_READABLE_EXCEPTION_PATH, API_ERROR_HTTP_MESSAGE_NOT_READABLE_EXCEPTION);
+        assertGetJsonResponse(context, TestResource.ASYNC_REQUEST_TIMEOUT_EXCEPTION_PATH, API_ERROR_ASYNC_REQUEST_TIMEOUT_EXCEPTION);
+        assertGetJsonResponse(context, TestResource.TASK_REJECTED_EXCEPTION_PATH, API_ERROR_TASK_REJECTED_EXCEPTION);
+        final ResultActions restClient = assertGetJsonResponse(context, TestResource.REST_CLIENT_RESPONSE_EXCEPTION_PATH, API_ERROR_REST_CLIENT_RESPONSE_EXCEPTION, false);
+        if (traces) {
+            ResultActionsUtils.assertArrayHasSizeLessOrEqual(restClient, "trace", 15);
+        } else {
+            restClient.andExpect(MockMvcResultMatchers.jsonPath("$.trace").doesNotExist());
+        }
+    }
+
     private static final ResultActions assertGetJsonResponse(AssertableWebApplicationContext context, String path, ApiErrorBase error) {
         return assertGetJsonResponse(context, path, error, true);
     }
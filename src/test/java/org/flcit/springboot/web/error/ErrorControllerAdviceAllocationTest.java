@@ -0,0 +1,356 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.LegacyAbstractLogger;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.flcit.commons.core.exception.BasicRuntimeException;
+import org.flcit.springboot.commons.test.util.LogTestUtils;
+import org.flcit.springboot.commons.test.validation.SimpleBindingResult;
+import org.flcit.springboot.web.core.exception.NotFoundException;
+import org.flcit.springboot.web.error.domain.ApiErrorBase;
+import org.flcit.springboot.web.error.domain.ApiErrorTrace;
+import org.flcit.springboot.web.error.domain.ApiErrors;
+import org.flcit.springboot.web.error.exception.StacklessResponseStatusException;
+
+class ErrorControllerAdviceAllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 10_000;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = getThreadMXBean();
+    private static final Properties BUDGETS = new Properties();
+
+    private static volatile Object sink;
+
+    private final ErrorControllerAdvice tested = new ErrorControllerAdvice();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ServletWebRequest webRequest;
+
+    @BeforeAll
+    static void loadBudgets() throws IOException {
+        assumeTrue(THREAD_MX_BEAN != null && THREAD_MX_BEAN.isThreadAllocatedMemorySupported());
+        THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+        try (InputStream is = ErrorControllerAdviceAllocationTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            assertNotNull(is);
+            BUDGETS.load(is);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        LogTestUtils.setLogger(tested, new DiscardingLogger());
+        webRequest = new ServletWebRequest(createRequest("/api/persons/42", "source=crm&fields=name"), new MockHttpServletResponse());
+    }
+
+    @Test
+    void handleBasicRuntimeExceptionTest() {
+        final NotFoundException ex = new NotFoundException("NOT_FOUND", "Person not found");
+        assertBudget("handler.basic-runtime-exception", () -> tested.handleBasicRuntimeException(ex, webRequest));
+    }
+
+    @Test
+    void handleBasicRuntimeExceptionLongQueryTest() {
+        final NotFoundException ex = new NotFoundException("NOT_FOUND", "Person not found");
+        final ServletWebRequest longQueryRequest = new ServletWebRequest(createRequest("/api/persons/42", "filter=" + "x".repeat(2048)), new MockHttpServletResponse());
+        assertBudget("handler.basic-runtime-exception.long-query", () -> tested.handleBasicRuntimeException(ex, longQueryRequest));
+    }
+
+    @Test
+    void throwAndHandleBasicRuntimeExceptionTest() {
+        assertBudget("throw-and-handle.basic-runtime-exception", () -> throwAndHandle(() -> new NotFoundException("NOT_FOUND", "Person not found")));
+    }
+
+    @Test
+    void throwAndHandleStacklessExceptionTest() {
+        final long stackless = assertBudget("throw-and-handle.stackless-exception", () -> throwAndHandle(() -> StacklessResponseStatusException.of(HttpStatus.NOT_FOUND, "NOT_FOUND", "Person not found")));
+        final long basic = allocatedBytesPerCall(() -> throwAndHandle(() -> new NotFoundException("NOT_FOUND", "Person not found")));
+        assertTrue(stackless < basic, "stackless " + stackless + " bytes per call, basic " + basic + " bytes per call");
+    }
+
+    @Test
+    void directWriteTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getDirectWrite().setEnabled(true);
+        final ErrorControllerAdvice directWrite = new ErrorControllerAdvice(properties, objectMapper);
+        LogTestUtils.setLogger(directWrite, new DiscardingLogger());
+        final NotFoundException ex = new NotFoundException("NOT_FOUND", "Person not found");
+        final ExceptionHandlerExceptionResolver directWriteResolver = createResolver(directWrite);
+        final ExceptionHandlerExceptionResolver resolver = createResolver(tested);
+        final long direct = assertBudget("resolver.basic-runtime-exception.direct-write", () -> resolve(directWriteResolver, ex));
+        final long converted = allocatedBytesPerCall(() -> resolve(resolver, ex));
+        assertTrue(direct < converted, "direct write " + direct + " bytes per call, message converter " + converted + " bytes per call");
+    }
+
+    @Test
+    void handleGlobalExceptionTest() {
+        final IllegalStateException ex = new IllegalStateException("Technical error");
+        assertBudget("handler.global-exception", () -> tested.handleGlobalException(ex, webRequest));
+    }
+
+    @Test
+    void handleRestClientResponseExceptionTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getTrace().setSampleRate(1);
+        final ErrorControllerAdvice traced = new ErrorControllerAdvice(properties, objectMapper);
+        LogTestUtils.setLogger(traced, new DiscardingLogger());
+        final RestClientResponseException ex = createRestClientResponseException();
+        assertInstanceOf(ApiErrorTrace.class, traced.handleRestClientResponseException(ex, webRequest).getBody());
+        assertBudget("handler.rest-client-response-exception", () -> traced.handleRestClientResponseException(ex, webRequest));
+    }
+
+    @Test
+    void handleRestClientResponseExceptionTraceOffTest() {
+        final RestClientResponseException ex = createRestClientResponseException();
+        assertFalse(tested.handleRestClientResponseException(ex, webRequest).getBody() instanceof ApiErrorTrace);
+        assertBudget("handler.rest-client-response-exception.trace-off", () -> tested.handleRestClientResponseException(ex, webRequest));
+    }
+
+    @Test
+    void handleTaskRejectedExceptionTest() {
+        final TaskRejectedException ex = new TaskRejectedException("Executor full");
+        assertBudget("handler.task-rejected-exception", () -> tested.handleTaskRejectedException(ex, webRequest));
+    }
+
+    @Test
+    void handleAsyncRequestTimeoutExceptionTest() {
+        final AsyncRequestTimeoutException ex = new AsyncRequestTimeoutException();
+        assertBudget("handler.async-request-timeout-exception", () -> handleException(ex));
+    }
+
+    @Test
+    void handleMethodArgumentNotValidTest() {
+        final MethodArgumentNotValidException ex = new MethodArgumentNotValidException(new MethodParameter(Constants.getMethodTest(), 0), new SimpleBindingResult(Constants.ERRORS));
+        assertBudget("handler.method-argument-not-valid", () -> handleException(ex));
+    }
+
+    @Test
+    void handleNoResourceFoundExceptionTest() {
+        final NoResourceFoundException ex = new NoResourceFoundException(HttpMethod.GET, ".env");
+        assertBudget("handler.no-resource-found-exception", () -> handleException(ex));
+    }
+
+    @Test
+    void serializationApiErrorBaseTest() {
+        final ApiErrorBase error = new ApiErrorBase("/api/persons/42", 404, "NOT_FOUND", "Person not found");
+        assertBudget("serialization.api-error-base", () -> serialize(error));
+    }
+
+    @Test
+    void serializationApiErrorsTest() {
+        final ApiErrors error = new ApiErrors("/api/persons", 400, "VALIDATION_FAILED", null, Constants.ERRORS);
+        assertBudget("serialization.api-errors", () -> serialize(error));
+    }
+
+    @Test
+    void serializationApiErrorTraceTest() {
+        final StackTraceElement[] trace = new IllegalStateException().getStackTrace();
+        final StackTraceElement[] limited = new StackTraceElement[Math.min(15, trace.length)];
+        System.arraycopy(trace, 0, limited, 0, limited.length);
+        final ApiErrorTrace error = new ApiErrorTrace("/api/persons", 500, "EXTERNAL_REST_CALL_FAILED", "500 on GET", limited);
+        assertBudget("serialization.api-error-trace", () -> serialize(error));
+    }
+
+    private ResponseEntity<Object> throwAndHandle(Supplier<BasicRuntimeException> exception) {
+        try {
+            throw exception.get();
+        } catch (BasicRuntimeException e) {
+            return tested.handleBasicRuntimeException(e, webRequest);
+        }
+    }
+
+    private ResponseEntity<Object> handleException(Exception ex) {
+        try {
+            return tested.handleException(ex, webRequest);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Resolver of the DispatcherServlet: content negotiation and Jackson converter for the ResponseEntity bodies
+     * @param advice
+     * @return
+     */
+    private ExceptionHandlerExceptionResolver createResolver(ErrorControllerAdvice advice) {
+        final StaticWebApplicationContext context = new StaticWebApplicationContext();
+        context.registerBean(ErrorControllerAdvice.class, () -> advice);
+        context.refresh();
+        final ExceptionHandlerExceptionResolver resolver = new ExceptionHandlerExceptionResolver();
+        resolver.setMessageConverters(List.of(new MappingJackson2HttpMessageConverter(objectMapper)));
+        resolver.setApplicationContext(context);
+        resolver.afterPropertiesSet();
+        return resolver;
+    }
+
+    private static final ModelAndView resolve(ExceptionHandlerExceptionResolver resolver, Exception ex) {
+        final ModelAndView modelAndView = resolver.resolveException(createRequest("/api/persons/42", "source=crm&fields=name"), new MockHttpServletResponse(), null, ex);
+        assertNotNull(modelAndView);
+        return modelAndView;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The budget is only checked on the JIT configuration of its measure (see allocation-budgets.properties):
+     * the escape analysis of an other JDK, of the C1 compiler only or under a coverage agent moves the allocations
+     * @param name
+     * @param call
+     * @return
+     */
+    private static final long assertBudget(String name, Supplier<?> call) {
+        final String budget = BUDGETS.getProperty(name);
+        assertNotNull(budget, "No allocation budget for " + name);
+        final long allocated = allocatedBytesPerCall(call);
+        if (isBudgetJvm()) {
+            assertTrue(allocated <= Long.parseLong(budget), name + " allocates " + allocated + " bytes per call (budget " + budget + ")");
+        }
+        return allocated;
+    }
+
+    /**
+     * The result of each call is published in a volatile field: the escape analysis cannot remove its allocations
+     * @param call
+     * @return
+     */
+    private static final long allocatedBytesPerCall(Supplier<?> call) {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = call.get();
+        }
+        final long before = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = call.get();
+        }
+        return (THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - before) / ITERATIONS;
+    }
+
+    private static final boolean isBudgetJvm() {
+        if (Runtime.version().feature() != Integer.parseInt(BUDGETS.getProperty("jdk"))) {
+            return false;
+        }
+        for (String argument: ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-XX:TieredStopAtLevel") || argument.startsWith("-javaagent") || argument.startsWith("-agentlib") || argument.startsWith("-Xint")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final RestClientResponseException createRestClientResponseException() {
+        return new RestClientResponseException("500 on GET", 500, "Internal Server Error", null, "{\"error\":\"upstream\"}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static final MockHttpServletRequest createRequest(String uri, String query) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setQueryString(query);
+        return request;
+    }
+
+    private static final com.sun.management.ThreadMXBean getThreadMXBean() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean ? threadMXBean : null;
+    }
+
+    /**
+     * Logger enabled at all levels which discards the events: the log message building stays in the measure.
+     */
+    static final class DiscardingLogger extends LegacyAbstractLogger {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected String getFullyQualifiedCallerName() {
+            return null;
+        }
+
+        @Override
+        protected void handleNormalizedLoggingCall(Level level, Marker marker, String messagePattern, Object[] arguments, Throwable throwable) {
+            // discarded
+        }
+
+        @Override
+        public boolean isTraceEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isWarnEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isErrorEnabled() {
+            return true;
+        }
+
+    }
+
+}
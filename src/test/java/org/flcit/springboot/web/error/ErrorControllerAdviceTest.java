@@ -16,36 +16,75 @@
 
 package org.flcit.springboot.web.error;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.slf4j.Logger;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.context.support.ResourceBundleMessageSource;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.method.MethodValidationResult;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolationException;
 
 import org.flcit.commons.core.exception.BasicRuntimeException;
 import org.flcit.springboot.web.core.exception.NoContentException;
 import org.flcit.springboot.commons.test.MockitoBaseTest;
 import org.flcit.springboot.commons.test.util.LogTestUtils;
 import org.flcit.springboot.web.error.domain.ApiErrorBase;
+import org.flcit.springboot.web.error.domain.ApiErrorTrace;
+import org.flcit.springboot.web.error.domain.ApiErrors;
+import org.flcit.springboot.web.error.exception.StacklessResponseStatusException;
 
 class ErrorControllerAdviceTest implements MockitoBaseTest {
 
@@ -77,6 +116,26 @@ class ErrorControllerAdviceTest implements MockitoBaseTest {
         assertInstanceOf(ApiErrorBase.class, tested.handleException(exception, mock(WebRequest.class)).getBody());
     }
 
+    @Test
+    void handleLongPollingTimeoutTest() throws Exception {
+        LogTestUtils.setLogger(tested, logger);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new HandlerMethod(this, ErrorControllerAdviceTest.class.getDeclaredMethod("poll")));
+        final ResponseEntity<Object> response = tested.handleException(new AsyncRequestTimeoutException(), new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(204, response.getStatusCode().value());
+        assertNull(response.getBody());
+        verifyNoInteractions(logger);
+        final MockHttpServletResponse committed = new MockHttpServletResponse();
+        committed.setCommitted(true);
+        assertNull(tested.handleException(new AsyncRequestTimeoutException(), new ServletWebRequest(request, committed)));
+        assertEquals(1, tested.getLongPollingTimeouts().getCount());
+    }
+
+    @LongPolling
+    void poll() {
+        // long-polling handler
+    }
+
     @Test
     void getPathTest() throws Exception {
         final MockHttpServletRequest request = new MockHttpServletRequest();
@@ -95,6 +154,177 @@ class ErrorControllerAdviceTest implements MockitoBaseTest {
         assertEquals(500, ((ApiErrorBase) tested.handleBasicRuntimeException(new NoStatusBasicRuntimeException(), new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse())).getBody()).getStatus());
     }
 
+    @Test
+    void handleGlobalExceptionWrappedTest() {
+        final ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        final ApiErrorBase error = (ApiErrorBase) tested.handleGlobalException(new CompletionException(new NoStatusBasicRuntimeException()), request).getBody();
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(), error.getMessage());
+        assertFalse(error instanceof ApiErrorTrace);
+        assertNull(tested.handleGlobalException(new ExecutionException(new NoContentException(HttpStatus.NO_CONTENT.getReasonPhrase())), request).getBody());
+        assertFalse(tested.handleGlobalException(new CompletionException(new IllegalStateException()), request).getBody() instanceof ApiErrorTrace);
+    }
+
+    @Test
+    void handleGlobalExceptionWrappedStatusTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getTrace().setSampleRate(1);
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, (ObjectMapper) null);
+        final ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        final ResponseEntity<Object> response = advice.handleGlobalException(new CompletionException(new AccessDeniedException("Access denied")), request);
+        assertEquals(403, response.getStatusCode().value());
+        final ApiErrorBase error = (ApiErrorBase) response.getBody();
+        assertEquals(AccessDeniedException.class.getName(), error.getCode());
+        assertFalse(error instanceof ApiErrorTrace);
+        final IllegalStateException cause = new IllegalStateException();
+        final CompletionException wrapper = new CompletionException(cause);
+        final ApiErrorTrace trace = (ApiErrorTrace) advice.handleGlobalException(wrapper, request).getBody();
+        assertEquals(IllegalStateException.class.getName(), trace.getCode());
+        assertArrayEquals(cause.getStackTrace(), trace.getTrace());
+    }
+
+    @Test
+    void handleGlobalExceptionTraceTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getTrace().setToken("debug-token");
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, (ObjectMapper) null);
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        assertFalse(advice.handleGlobalException(new IllegalStateException(), new ServletWebRequest(request, new MockHttpServletResponse())).getBody() instanceof ApiErrorTrace);
+        request.addHeader("X-Debug-Trace", "debug-token");
+        assertInstanceOf(ApiErrorTrace.class, advice.handleGlobalException(new IllegalStateException(), new ServletWebRequest(request, new MockHttpServletResponse())).getBody());
+        properties.getTrace().setToken(null);
+        properties.getTrace().setSampleRate(1);
+        assertInstanceOf(ApiErrorTrace.class, new ErrorControllerAdvice(properties, (ObjectMapper) null).handleGlobalException(new IllegalStateException(), new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse())).getBody());
+    }
+
+    @Test
+    void handleStacklessExceptionTest() {
+        when(logger.isWarnEnabled()).thenReturn(true);
+        LogTestUtils.setLogger(tested, logger);
+        final ApiErrorBase error = (ApiErrorBase) tested.handleBasicRuntimeException(StacklessResponseStatusException.of(HttpStatus.NOT_FOUND, "NOT_FOUND", "MESSAGE"), new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse())).getBody();
+        assertEquals(404, error.getStatus());
+        assertEquals("NOT_FOUND", error.getCode());
+        assertFalse(error instanceof ApiErrorTrace);
+        verify(logger).warn(anyString());
+        verify(logger, never()).warn(anyString(), any(Throwable.class));
+    }
+
+    @Test
+    void handleScannerExceptionTest() throws Exception {
+        LogTestUtils.setLogger(tested, logger);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/.env");
+        final ApiErrorBase error = (ApiErrorBase) tested.handleException(new NoResourceFoundException(HttpMethod.GET, ".env"), new ServletWebRequest(request, new MockHttpServletResponse())).getBody();
+        assertEquals(404, error.getStatus());
+        assertEquals(NoResourceFoundException.class.getName(), error.getCode());
+        assertNull(error.getPath());
+        final ResponseEntity<Object> response = tested.handleException(new HttpRequestMethodNotSupportedException("DELETE", List.of("GET")), new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(405, response.getStatusCode().value());
+        assertEquals(Set.of(HttpMethod.GET), response.getHeaders().getAllow());
+        assertEquals(415, tested.handleException(new HttpMediaTypeNotSupportedException("text/xml"), new ServletWebRequest(request, new MockHttpServletResponse())).getStatusCode().value());
+        assertEquals(1L, tested.getScannerErrors().getCounts().get(NoResourceFoundException.class.getName()));
+        verifyNoInteractions(logger);
+    }
+
+    @Test
+    void handleScannerExceptionDirectWriteTest() throws Exception {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getDirectWrite().setEnabled(true);
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, new ObjectMapper());
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(advice.handleException(new HttpRequestMethodNotSupportedException("DELETE", List.of("GET")), new ServletWebRequest(new MockHttpServletRequest("DELETE", "/wp-admin"), response)));
+        assertEquals(405, response.getStatus());
+        assertEquals("GET", response.getHeader(HttpHeaders.ALLOW));
+        assertEquals("{\"path\":null,\"status\":405,\"code\":\"" + HttpRequestMethodNotSupportedException.class.getName() + "\",\"message\":\"Method Not Allowed\"}", response.getContentAsString());
+    }
+
+    @Test
+    void localizedMessageTest() throws Exception {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getMessages().setEnabled(true);
+        properties.getMessages().setCodes(List.of("PERSON_NOT_FOUND"));
+        properties.getMessages().setLocales(List.of(Locale.FRENCH));
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, (ObjectMapper) null);
+        final ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("i18n/errors");
+        advice.setMessageSource(messageSource);
+        assertEquals(1, advice.getMessageResolver().size());
+        LocaleContextHolder.setLocale(Locale.FRENCH);
+        try {
+            final ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+            assertEquals("Personne introuvable", ((ApiErrorBase) advice.handleBasicRuntimeException(StacklessResponseStatusException.of(HttpStatus.NOT_FOUND, "PERSON_NOT_FOUND", "Person 42 not found"), request).getBody()).getMessage());
+            assertEquals("Unknown", ((ApiErrorBase) advice.handleBasicRuntimeException(StacklessResponseStatusException.of(HttpStatus.NOT_FOUND, "UNKNOWN", "Unknown"), request).getBody()).getMessage());
+            when(bindingResult.getAllErrors()).thenReturn(List.of(new FieldError("person", "name", null, false, new String[] { "NotBlank" }, new Object[] { "name" }, "must not be blank")));
+            final ApiErrors errors = (ApiErrors) advice.handleException(new MethodArgumentNotValidException(new MethodParameter(Constants.getMethodTest(), 0), bindingResult), request).getBody();
+            assertTrue(new ObjectMapper().writeValueAsString(errors).contains("\"defaultMessage\":\"Le champ name est obligatoire\""));
+        } finally {
+            LocaleContextHolder.resetLocaleContext();
+        }
+        assertNull(tested.getMessageResolver());
+    }
+
+    @Test
+    void handleMethodValidationExceptionTest() throws Exception {
+        final ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        final Method method = Constants.getMethodTest();
+        final ResponseEntity<Object> response = tested.handleException(new HandlerMethodValidationException(MethodValidationResult.create(this, method, List.of(),
+                List.of(new DefaultMessageSourceResolvable(new String[] { "ValidRange" }, "invalid range")))), request);
+        assertEquals(400, response.getStatusCode().value());
+        assertInstanceOf(ApiErrors.class, response.getBody());
+        final ApiErrorBase error = (ApiErrorBase) tested.handleGlobalException(new CompletionException(new ConstraintViolationException("invalid", Set.of())), request).getBody();
+        assertEquals(400, error.getStatus());
+        assertEquals("VALIDATION_FAILED", error.getCode());
+    }
+
+    @Test
+    void handleTransientErrorTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getTransientErrors().setLogSampleRate(0);
+        properties.getTrace().setSampleRate(1);
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, (ObjectMapper) null);
+        LogTestUtils.setLogger(advice, logger);
+        final ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        final ResponseEntity<Object> response = advice.handleGlobalException(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")), request);
+        assertEquals(504, response.getStatusCode().value());
+        assertEquals("5", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertFalse(response.getBody() instanceof ApiErrorTrace);
+        assertEquals(503, advice.handleGlobalException(new CompletionException(new ResourceAccessException("I/O error", new ConnectException("Connection refused"))), request).getStatusCode().value());
+        verifyNoInteractions(logger);
+        assertEquals(500, advice.handleGlobalException(new UncheckedIOException(new SocketTimeoutException("Read timed out")), request).getStatusCode().value());
+        assertEquals(400, advice.handleHttpMessageNotReadable(new HttpMessageNotReadableException("I/O error", new SocketTimeoutException("Read timed out"), new MockHttpInputMessage(new byte[0])), HttpHeaders.EMPTY, HttpStatus.BAD_REQUEST, request).getStatusCode().value());
+        assertInstanceOf(ApiErrorTrace.class, advice.handleGlobalException(new IllegalStateException(), request).getBody());
+    }
+
+    @Test
+    void handleCommittedResponseTest() throws Exception {
+        when(logger.isWarnEnabled()).thenReturn(true);
+        LogTestUtils.setLogger(tested, logger);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCommitted(true);
+        final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        assertNull(tested.handleGlobalException(new IllegalStateException(), webRequest));
+        assertNull(tested.handleBasicRuntimeException(new NoStatusBasicRuntimeException(), webRequest));
+        assertEquals("event: error\ndata: {\"code\":\"" + IllegalStateException.class.getName() + "\"}\n\n", response.getContentAsString());
+        verify(logger).warn(anyString(), any(IllegalStateException.class));
+        verify(logger, never()).warn(anyString());
+    }
+
+    @Test
+    void handleCommittedAsyncRequestTimeoutTest() throws Exception {
+        when(logger.isWarnEnabled()).thenReturn(true);
+        LogTestUtils.setLogger(tested, logger);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCommitted(true);
+        final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        assertNull(tested.handleException(new AsyncRequestTimeoutException(), webRequest));
+        assertNull(tested.handleException(new AsyncRequestTimeoutException(), webRequest));
+        assertEquals("event: error\ndata: {\"code\":\"" + AsyncRequestTimeoutException.class.getName() + "\"}\n\n", response.getContentAsString());
+        verify(logger).warn(anyString(), any(Throwable.class));
+        verify(logger, never()).warn(anyString());
+    }
+
     @Test
     void logTest() throws Exception {
         when(logger.isWarnEnabled()).thenReturn(false);
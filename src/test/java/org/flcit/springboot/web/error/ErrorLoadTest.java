@@ -0,0 +1,211 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Load test of the error handling on an embedded Tomcat (random port, loopback only).
+ * Excluded from the default build, run with: mvn test -Pload-test
+ * <ul>
+ * <li>loadtest.duration: seconds of measure per phase (default 30)</li>
+ * <li>loadtest.warmup: seconds of warmup (default 5)</li>
+ * <li>loadtest.concurrency: concurrent clients (default 16)</li>
+ * <li>loadtest.success-ratio: share of the success endpoint in the mix (default 0.9)</li>
+ * <li>loadtest.report: JSON report file (default target/load-test-report.json)</li>
+ * </ul>
+ * Phase "baseline" calls only the success endpoint, phase "mixed" spreads the rest of the calls over each exception type.
+ */
+@Tag("load-test")
+class ErrorLoadTest {
+
+    private static final List<String> ERROR_PATHS = Arrays.asList(
+            TestResource.FUNCTIONAL_EXCEPTION_PATH,
+            TestResource.TECHNICAL_EXCEPTION_PATH,
+            TestResource.ACCESS_DENIED_EXCEPTION_PATH,
+            TestResource.METHOD_ARGUMENT_NOT_VALID_EXCEPTION_PATH,
+            TestResource.HTTP_MESSAGE_NOT_READABLE_EXCEPTION_PATH,
+            TestResource.ASYNC_REQUEST_TIMEOUT_EXCEPTION_PATH,
+            TestResource.TASK_REJECTED_EXCEPTION_PATH,
+            TestResource.REST_CLIENT_RESPONSE_EXCEPTION_PATH);
+
+    private final int duration = Integer.getInteger("loadtest.duration", 30);
+    private final int warmup = Integer.getInteger("loadtest.warmup", 5);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+    private final double successRatio = Double.parseDouble(System.getProperty("loadtest.success-ratio", "0.9"));
+    private final Path report = Path.of(System.getProperty("loadtest.report", "target/load-test-report.json"));
+
+    @Test
+    void loadTest() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LoadTestApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0", "server.address=127.0.0.1", "spring.main.banner-mode=off", "logging.level.org.flcit=ERROR")
+                .run()) {
+            final String baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            run(client, baseUrl, 1d, warmup);
+            final Map<String, Object> baseline = run(client, baseUrl, 1d, duration);
+            final Map<String, Object> mixed = run(client, baseUrl, successRatio, duration);
+            writeReport(baseline, mixed);
+        }
+        assertTrue(Files.size(report) > 0);
+    }
+
+    private Map<String, Object> run(HttpClient client, String baseUrl, double ratio, int seconds) throws Exception {
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        final List<Future<Map<String, Latencies>>> workers = new ArrayList<>(concurrency);
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> work(client, baseUrl, ratio, end)));
+            }
+            final Map<String, Latencies> merged = new LinkedHashMap<>();
+            for (Future<Map<String, Latencies>> worker: workers) {
+                worker.get().forEach((path, latencies) -> merged.computeIfAbsent(path, p -> new Latencies()).addAll(latencies));
+            }
+            final Map<String, Object> endpoints = new LinkedHashMap<>();
+            merged.forEach((path, latencies) -> endpoints.put(path, latencies.summary(seconds)));
+            return endpoints;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final Map<String, Latencies> work(HttpClient client, String baseUrl, double ratio, long end) throws IOException, InterruptedException {
+        final Map<String, Latencies> latencies = new LinkedHashMap<>();
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            final String path = random.nextDouble() < ratio ? TestResource.TEST_PATH : ERROR_PATHS.get(random.nextInt(ERROR_PATHS.size()));
+            final HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+            final long start = System.nanoTime();
+            final HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            final long latency = System.nanoTime() - start;
+            if (TestResource.TEST_PATH.equals(path)) {
+                assertEquals(200, response.statusCode());
+            }
+            latencies.computeIfAbsent(path, p -> new Latencies()).add(latency);
+        }
+        return latencies;
+    }
+
+    private void writeReport(Map<String, Object> baseline, Map<String, Object> mixed) throws IOException {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("libraryVersion", System.getProperty("loadtest.library-version", "unknown"));
+        result.put("javaVersion", Runtime.version().toString());
+        result.put("durationSeconds", duration);
+        result.put("concurrency", concurrency);
+        result.put("successRatio", successRatio);
+        result.put("baseline", baseline);
+        result.put("mixed", mixed);
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), result);
+    }
+
+    static final class Latencies {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Latencies latencies) {
+            for (int i = 0; i < latencies.size; i++) {
+                add(latencies.values[i]);
+            }
+        }
+
+        Map<String, Object> summary(int seconds) {
+            final long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            final Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", size);
+            summary.put("throughputPerSecond", (double) size / seconds);
+            summary.put("p50Micros", percentile(sorted, 0.5));
+            summary.put("p99Micros", percentile(sorted, 0.99));
+            summary.put("p999Micros", percentile(sorted, 0.999));
+            summary.put("maxMicros", sorted.length == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length - 1]));
+            return summary;
+        }
+
+        private static final long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMicros(sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)]);
+        }
+
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({
+        ServletWebServerFactoryAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        JacksonAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        WebMvcAutoConfiguration.class,
+        ErrorAutoConfiguration.class })
+    @Import(TestResource.class)
+    static class LoadTestApplication {
+
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.validation.FieldError;
+
+class ErrorMessageResolverTest {
+
+    private static final String BASENAME = "i18n/errors";
+
+    @Test
+    void resolveCodeTest() {
+        final ErrorMessageResolver tested = new ErrorMessageResolver(getMessageSource(), 100);
+        assertEquals("Personne introuvable", tested.resolve("PERSON_NOT_FOUND", "default", Locale.FRENCH));
+        assertEquals("Person not found", tested.resolve("PERSON_NOT_FOUND", "default", Locale.ROOT));
+        assertEquals("default", tested.resolve("UNKNOWN", "default", Locale.FRENCH));
+        assertEquals("default", tested.resolve(null, "default", Locale.FRENCH));
+        assertEquals("default", tested.resolve("NotBlank", "default", Locale.FRENCH));
+        assertEquals("L'adresse est introuvable", tested.resolve("ADDRESS_NOT_FOUND", "default", Locale.FRENCH));
+        assertEquals("Can't find the address", tested.resolve("ADDRESS_NOT_FOUND", "default", Locale.ROOT));
+    }
+
+    @Test
+    void resolveResolvableTest() {
+        final ErrorMessageResolver tested = new ErrorMessageResolver(getMessageSource(), 100);
+        final FieldError error = new FieldError("person", "name", null, false,
+                new String[] { "NotBlank.person.name", "NotBlank" },
+                new Object[] { new DefaultMessageSourceResolvable(new String[] { "person.name", "name" }, "name") },
+                "must not be blank");
+        assertEquals("Le champ nom est obligatoire", tested.resolve(error, Locale.FRENCH));
+        assertEquals("The field name is required", tested.resolve(error, Locale.ROOT));
+        assertEquals("must not be blank", tested.resolve(new FieldError("person", "name", "must not be blank"), Locale.FRENCH));
+        assertEquals("L'adresse est introuvable", tested.resolve(new DefaultMessageSourceResolvable("ADDRESS_NOT_FOUND"), Locale.FRENCH));
+    }
+
+    @Test
+    void cacheTest() {
+        final StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("CODE", Locale.FRENCH, "Message");
+        final ErrorMessageResolver tested = new ErrorMessageResolver(messageSource, 2);
+        assertEquals("Message", tested.resolve("CODE", null, Locale.FRENCH));
+        assertNull(tested.resolve("UNKNOWN", null, Locale.FRENCH));
+        assertNull(tested.resolve("OTHER", null, Locale.FRENCH));
+        assertEquals(2, tested.size());
+        messageSource.addMessage("CODE", Locale.FRENCH, "Modified");
+        assertEquals("Message", tested.resolve("CODE", null, Locale.FRENCH));
+        messageSource.addMessage("OTHER", Locale.FRENCH, "Other");
+        assertEquals("Other", tested.resolve("OTHER", null, Locale.FRENCH));
+    }
+
+    @Test
+    void warmUpTest() {
+        final ErrorMessageResolver tested = new ErrorMessageResolver(getMessageSource(), 100);
+        tested.warmUp(List.of("PERSON_NOT_FOUND", "UNKNOWN"), List.of(Locale.FRENCH, Locale.ENGLISH));
+        assertEquals(4, tested.size());
+        tested.warmUp(null, List.of(Locale.FRENCH));
+        assertEquals(4, tested.size());
+    }
+
+    private static final ResourceBundleMessageSource getMessageSource() {
+        final ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename(BASENAME);
+        messageSource.setFallbackToSystemLocale(false);
+        return messageSource;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+class ErrorPathResolverTest {
+
+    @Test
+    void resolveUriTest() {
+        final ErrorPathResolver tested = new ErrorPathResolver(new WebErrorProperties().getPath());
+        assertNull(tested.resolve(null));
+        assertEquals("/persons/42", tested.resolve(createRequest(null)));
+        assertEquals("/persons/42?source=crm&token=secret", tested.resolve(createRequest("source=crm&token=secret")));
+    }
+
+    @Test
+    void resolvePatternTest() {
+        final WebErrorProperties.Path properties = new WebErrorProperties().getPath();
+        properties.setMode(WebErrorProperties.PathMode.PATTERN);
+        ErrorPathResolver tested = new ErrorPathResolver(properties);
+        assertEquals("/persons/{id}", tested.resolve(createRequest("source=crm&token=secret")));
+        properties.setQueryParams(Arrays.asList("source", "page", "flag"));
+        tested = new ErrorPathResolver(properties);
+        assertEquals("/persons/{id}", tested.resolve(createRequest(null)));
+        assertEquals("/persons/{id}?source=crm&page=2&flag", tested.resolve(createRequest("source=crm&token=secret&page=2&&flag")));
+        properties.setMaxQueryLength(12);
+        tested = new ErrorPathResolver(properties);
+        assertEquals("/persons/{id}?source=crm", tested.resolve(createRequest("source=crm&page=2")));
+        properties.setMaxQueryLength(5);
+        tested = new ErrorPathResolver(properties);
+        assertEquals("/persons/{id}", tested.resolve(createRequest("source=crm&page=2")));
+    }
+
+    @Test
+    void resolvePatternNoHandlerTest() {
+        final WebErrorProperties.Path properties = new WebErrorProperties().getPath();
+        properties.setMode(WebErrorProperties.PathMode.PATTERN);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/wp-admin");
+        request.setQueryString("p=1");
+        assertEquals("/wp-admin", new ErrorPathResolver(properties).resolve(request));
+    }
+
+    @Test
+    void getPatternTest() {
+        assertEquals("/persons/{id}", ErrorPathResolver.getPattern(createRequest(null)));
+        assertEquals(ErrorPathResolver.UNMATCHED, ErrorPathResolver.getPattern(new MockHttpServletRequest("GET", "/wp-admin")));
+    }
+
+    private static final MockHttpServletRequest createRequest(String query) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/persons/42");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/persons/{id}");
+        request.setQueryString(query);
+        return request;
+    }
+
+}
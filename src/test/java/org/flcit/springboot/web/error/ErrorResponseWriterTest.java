@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.flcit.springboot.web.error.domain.ApiErrorBase;
+
+class ErrorResponseWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ErrorResponseWriter tested = new ErrorResponseWriter(objectMapper);
+
+    @Test
+    void writeTest() throws IOException {
+        final ApiErrorBase error = new ApiErrorBase("/test", 404, "CODE", "MESSAGE");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "10");
+        assertTrue(tested.write(error, headers, HttpStatus.NOT_FOUND, new MockHttpServletRequest(), response));
+        assertEquals(404, response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, response.getContentType());
+        assertEquals("10", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertArrayEquals(objectMapper.writeValueAsBytes(error), response.getContentAsByteArray());
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+        assertTrue(response.isCommitted());
+        assertFalse(tested.write(error, HttpHeaders.EMPTY, HttpStatus.NOT_FOUND, new MockHttpServletRequest(), response));
+    }
+
+    @Test
+    void writeNotAcceptableTest() throws IOException {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_XML_VALUE);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(tested.write(new ApiErrorBase("/test", 404, "CODE", "MESSAGE"), HttpHeaders.EMPTY, HttpStatus.NOT_FOUND, request, response));
+        assertFalse(response.isCommitted());
+    }
+
+    @Test
+    void isJsonAcceptableTest() {
+        assertTrue(ErrorResponseWriter.isJsonAcceptable(null));
+        assertTrue(ErrorResponseWriter.isJsonAcceptable("*/*"));
+        assertTrue(ErrorResponseWriter.isJsonAcceptable("text/html, application/json;q=0.9"));
+        assertFalse(ErrorResponseWriter.isJsonAcceptable("text/html"));
+        assertFalse(ErrorResponseWriter.isJsonAcceptable("invalid"));
+    }
+
+    @Test
+    void adviceDirectWriteTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getDirectWrite().setEnabled(true);
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, objectMapper);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(advice.handleGlobalException(new IllegalStateException(), new ServletWebRequest(new MockHttpServletRequest(), response)));
+        assertEquals(500, response.getStatus());
+        assertTrue(response.getContentAsByteArray().length > 0);
+    }
+
+}
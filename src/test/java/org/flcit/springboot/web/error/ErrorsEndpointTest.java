@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ErrorsEndpointTest {
+
+    @Test
+    void errorsTest() {
+        final Map<String, Object> errors = new ErrorsEndpoint(new ErrorControllerAdvice()).errors();
+        assertEquals(Set.of(ErrorsEndpoint.SCANNERS, ErrorsEndpoint.LONG_POLLING_TIMEOUTS), errors.keySet());
+        assertEquals(0L, errors.get(ErrorsEndpoint.LONG_POLLING_TIMEOUTS));
+        assertEquals(0L, assertInstanceOf(Map.class, errors.get(ErrorsEndpoint.SCANNERS)).get(NoResourceFoundException.class.getName()));
+    }
+
+    @Test
+    void upstreamsTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getUpstreamFailures().setEnabled(true);
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, (ObjectMapper) null);
+        final RestClientResponseException ex = new RestClientResponseException("500 Internal Server Error on GET request for \"http://api.flcit.org/persons\": [no body]",
+                500, "Internal Server Error", null, new byte[0], StandardCharsets.UTF_8);
+        for (int i = 0; i < 3; i++) {
+            advice.handleRestClientResponseException(ex, new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
+        }
+        final ErrorsEndpoint tested = new ErrorsEndpoint(advice);
+        final List<?> upstreams = assertInstanceOf(List.class, tested.errors(ErrorsEndpoint.UPSTREAMS));
+        assertEquals(1, upstreams.size());
+        final Map<?, ?> upstream = assertInstanceOf(Map.class, upstreams.get(0));
+        assertEquals("api.flcit.org", upstream.get("host"));
+        assertEquals(3L, upstream.get("count"));
+        assertNull(tested.errors("unknown"));
+    }
+
+    @Test
+    void heavyHittersTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getHeavyHitters().setEnabled(true);
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, (ObjectMapper) null);
+        for (int i = 0; i < 3; i++) {
+            final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/persons/" + i);
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/persons/{id}");
+            advice.handleGlobalException(new IllegalStateException(), new ServletWebRequest(request, new MockHttpServletResponse()));
+        }
+        final Map<?, ?> heavyHitters = assertInstanceOf(Map.class, new ErrorsEndpoint(advice).errors(ErrorsEndpoint.HEAVY_HITTERS));
+        final Map<?, ?> paths = assertInstanceOf(Map.class, heavyHitters.get("paths"));
+        final Map<?, ?> path = assertInstanceOf(Map.class, assertInstanceOf(List.class, paths.get("top")).get(0));
+        assertEquals("/persons/{id}", path.get("key"));
+        assertEquals(3L, path.get("count"));
+        final Map<?, ?> codes = assertInstanceOf(Map.class, heavyHitters.get("codes"));
+        final Map<?, ?> code = assertInstanceOf(Map.class, assertInstanceOf(List.class, codes.get("top")).get(0));
+        assertEquals(IllegalStateException.class.getName(), code.get("key"));
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+class ExceptionUnwrapperTest {
+
+    private final ExceptionUnwrapper tested = ExceptionUnwrapper.from(new WebErrorProperties().getUnwrap());
+
+    @Test
+    void unwrapTest() {
+        final IllegalStateException cause = new IllegalStateException();
+        assertSame(cause, tested.unwrap(new CompletionException(new ExecutionException(new UndeclaredThrowableException(cause)))));
+        assertSame(cause, tested.unwrap(cause));
+        final RuntimeException notWrapper = new RuntimeException(cause);
+        assertSame(notWrapper, tested.unwrap(notWrapper));
+    }
+
+    @Test
+    void unwrapMaxDepthTest() {
+        final IllegalStateException cause = new IllegalStateException();
+        final CompletionException depth1 = new CompletionException(cause);
+        final CompletionException depth2 = new CompletionException(depth1);
+        assertSame(depth1, new ExceptionUnwrapper(new WebErrorProperties().getUnwrap().getWrapperTypes(), 1).unwrap(depth2));
+        final WebErrorProperties.Unwrap disabled = new WebErrorProperties().getUnwrap();
+        disabled.setEnabled(false);
+        assertSame(depth2, ExceptionUnwrapper.from(disabled).unwrap(depth2));
+    }
+
+    @Test
+    void unwrapCycleTest() {
+        final CompletionException first = new SubCompletionException();
+        final CompletionException second = new CompletionException(first);
+        first.initCause(second);
+        assertTrue(tested.unwrap(second) instanceof CompletionException);
+    }
+
+    @Test
+    void isWrapperTest() {
+        assertTrue(tested.isWrapper(CompletionException.class));
+        assertTrue(tested.isWrapper(SubCompletionException.class));
+        assertFalse(tested.isWrapper(RuntimeException.class));
+    }
+
+    static final class SubCompletionException extends CompletionException {
+
+        private static final long serialVersionUID = 1L;
+
+    }
+
+}
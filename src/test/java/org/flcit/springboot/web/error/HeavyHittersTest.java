@@ -0,0 +1,147 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class HeavyHittersTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void topTest() {
+        final HeavyHitters tested = new HeavyHitters(2, 1024, 4, 60000, 6);
+        final long now = 10 * 60 * SECOND;
+        for (int i = 0; i < 100; i++) {
+            tested.add("A", now);
+        }
+        for (int i = 0; i < 50; i++) {
+            tested.add("B", now);
+        }
+        for (int i = 0; i < 1000; i++) {
+            tested.add("noise-" + i, now);
+        }
+        final Map<String, Object> result = tested.getTop(now);
+        assertEquals(1150L, result.get("total"));
+        final List<Map<String, Object>> top = getTop(result);
+        assertEquals(2, top.size());
+        assertEquals("A", top.get(0).get("key"));
+        assertEquals("B", top.get(1).get("key"));
+        final long errorBound = (long) result.get("errorBound");
+        assertTrue((long) top.get(0).get("count") >= 100 && (long) top.get(0).get("count") <= 100 + errorBound);
+        assertTrue((long) top.get(1).get("count") >= 50 && (long) top.get(1).get("count") <= 50 + errorBound);
+    }
+
+    @Test
+    void windowTest() {
+        final HeavyHitters tested = new HeavyHitters(10, 64, 2, 60000, 6);
+        final long now = 10 * 60 * SECOND;
+        tested.add("A", now);
+        tested.add("A", now + 30 * SECOND);
+        tested.add(null, now);
+        assertEquals(2L, getTop(tested.getTop(now + 30 * SECOND)).get(0).get("count"));
+        assertEquals(1L, getTop(tested.getTop(now + 65 * SECOND)).get(0).get("count"));
+        assertTrue(getTop(tested.getTop(now + 120 * SECOND)).isEmpty());
+        tested.add("B", now + 120 * SECOND);
+        assertEquals("B", getTop(tested.getTop(now + 120 * SECOND)).get(0).get("key"));
+        assertEquals(1L, tested.getTop(now + 120 * SECOND).get("total"));
+    }
+
+    @Test
+    void notCandidateTest() {
+        final HeavyHitters tested = new HeavyHitters(1, 1024, 4, 60000, 6);
+        final long now = 10 * 60 * SECOND;
+        for (int i = 0; i < 16; i++) {
+            tested.add("noise-" + i, now);
+            tested.add("noise-" + i, now);
+        }
+        tested.add("A", now);
+        for (int i = 0; i < 5; i++) {
+            tested.add("A", now + 10 * SECOND);
+        }
+        final Map<String, Object> result = tested.getTop(now + 10 * SECOND);
+        final Map<String, Object> first = getTop(result).get(0);
+        assertEquals("A", first.get("key"));
+        assertTrue((long) first.get("count") >= 6 && (long) first.get("count") <= 6 + (long) result.get("errorBound"));
+    }
+
+    @Test
+    void negativeTimeTest() {
+        final HeavyHitters tested = new HeavyHitters(10, 64, 2, 60000, 6);
+        final long now = -10 * 60 * SECOND - 1;
+        tested.add("A", now);
+        tested.add("A", now + 30 * SECOND);
+        assertEquals(2L, getTop(tested.getTop(now + 30 * SECOND)).get(0).get("count"));
+        assertEquals(1L, getTop(tested.getTop(now + 65 * SECOND)).get(0).get("count"));
+        assertTrue(getTop(tested.getTop(now + 120 * SECOND)).isEmpty());
+    }
+
+    @Test
+    void concurrentTest() throws InterruptedException {
+        final HeavyHitters tested = new HeavyHitters(1, 256, 4, 3600000, 1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int t = 0; t < 4; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        tested.add("A");
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(40000L, getTop(tested.getTop()).get(0).get("count"));
+    }
+
+    @Test
+    void concurrentRotationTest() throws InterruptedException {
+        final HeavyHitters tested = new HeavyHitters(1, 64, 2, 6000, 6);
+        final long now = 10 * 60 * SECOND;
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int t = 0; t < 4; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        tested.add("A", now + i * (SECOND / 100));
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        final long count = (long) getTop(tested.getTop(now + 9999 * (SECOND / 100))).get(0).get("count");
+        assertTrue(count > 0 && count <= 40000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final List<Map<String, Object>> getTop(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("top");
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+class LongPollingTimeoutsTest {
+
+    @Test
+    void annotationTest() throws NoSuchMethodException {
+        final LongPollingTimeouts tested = new LongPollingTimeouts(new WebErrorProperties.LongPolling());
+        assertTrue(tested.isLongPolling(request("/events", new HandlerMethod(new Resource(), Resource.class.getMethod("poll")))));
+        assertTrue(tested.isLongPolling(request("/events", new HandlerMethod(new Resource(), Resource.class.getMethod("poll")))));
+        assertFalse(tested.isLongPolling(request("/persons", new HandlerMethod(new Resource(), Resource.class.getMethod("get")))));
+        assertTrue(tested.isLongPolling(request("/notifications", new HandlerMethod(new PollingResource(), PollingResource.class.getMethod("get")))));
+        assertFalse(tested.isLongPolling(request("/persons", null)));
+    }
+
+    @Test
+    void inheritedMethodTest() throws NoSuchMethodException {
+        final LongPollingTimeouts tested = new LongPollingTimeouts(new WebErrorProperties.LongPolling());
+        assertTrue(tested.isLongPolling(request("/notifications", new HandlerMethod(new PollingSubResource(), BaseResource.class.getMethod("get")))));
+        assertFalse(tested.isLongPolling(request("/persons", new HandlerMethod(new SubResource(), BaseResource.class.getMethod("get")))));
+    }
+
+    @Test
+    void pathsTest() {
+        final WebErrorProperties.LongPolling properties = new WebErrorProperties.LongPolling();
+        properties.setPaths(List.of("/events/**", "/notifications/{id}"));
+        final LongPollingTimeouts tested = new LongPollingTimeouts(properties);
+        assertTrue(tested.isLongPolling(request("/events/42/stream", null)));
+        final MockHttpServletRequest request = request("/notifications/42", null);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/notifications/{id}");
+        assertTrue(tested.isLongPolling(request));
+        assertFalse(tested.isLongPolling(request("/persons/42", null)));
+    }
+
+    @Test
+    void timeoutTest() {
+        final LongPollingTimeouts tested = new LongPollingTimeouts(new WebErrorProperties.LongPolling());
+        final ResponseEntity<Object> response = tested.timeout();
+        assertEquals(204, response.getStatusCode().value());
+        assertNull(response.getBody());
+        assertSame(response, tested.timeout());
+        assertEquals(2, tested.getCount());
+        final WebErrorProperties.LongPolling properties = new WebErrorProperties.LongPolling();
+        properties.setStatus(200);
+        properties.setBody("{}");
+        final ResponseEntity<Object> bodyResponse = new LongPollingTimeouts(properties).timeout();
+        assertEquals(200, bodyResponse.getStatusCode().value());
+        assertEquals("{}", bodyResponse.getBody());
+        assertEquals(MediaType.APPLICATION_JSON, bodyResponse.getHeaders().getContentType());
+    }
+
+    private static final MockHttpServletRequest request(String uri, HandlerMethod handler) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler);
+        return request;
+    }
+
+    static class Resource {
+
+        @LongPolling
+        public String poll() {
+            return null;
+        }
+
+        public String get() {
+            return null;
+        }
+
+    }
+
+    @LongPolling
+    static class PollingResource {
+
+        public String get() {
+            return null;
+        }
+
+    }
+
+    static class BaseResource {
+
+        public String get() {
+            return null;
+        }
+
+    }
+
+    @LongPolling
+    static class PollingSubResource extends BaseResource {
+
+    }
+
+    static class SubResource extends BaseResource {
+
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ScannerErrorsTest {
+
+    @Test
+    void countsTest() {
+        final ScannerErrors tested = new ScannerErrors(null);
+        assertSame(tested.getNotFound().increment(), tested.getNotFound().increment());
+        tested.getMediaTypeNotSupported().increment();
+        assertNull(tested.getNotFound().getSerializedBody());
+        assertEquals(2L, tested.getCounts().get(NoResourceFoundException.class.getName()));
+        assertEquals(0L, tested.getCounts().get(HttpRequestMethodNotSupportedException.class.getName()));
+        assertEquals(1L, tested.getCounts().get(HttpMediaTypeNotSupportedException.class.getName()));
+    }
+
+    @Test
+    void serializedBodyTest() {
+        final ScannerErrors tested = new ScannerErrors(new ErrorResponseWriter(new ObjectMapper()));
+        assertNotNull(tested.getNotFound().getSerializedBody());
+        assertEquals(404, tested.getNotFound().increment().getStatus());
+        assertNull(tested.getNotFound().increment().getPath());
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+import org.flcit.springboot.commons.test.util.LogTestUtils;
+import org.flcit.springboot.web.core.exception.NotFoundException;
+
+class StructuredErrorLogTest {
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        logger = new LoggerContext().getLogger(StructuredErrorLogTest.class);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @Test
+    void warnTest() {
+        final IllegalStateException ex = new IllegalStateException("TECHNICAL");
+        new StructuredErrorLog(3).warn(logger, ex, "/persons/{id}", 500, IllegalStateException.class.getName(), true);
+        assertEquals(1, appender.list.size());
+        final ILoggingEvent event = appender.list.get(0);
+        assertNull(event.getThrowableProxy());
+        final Map<String, Object> values = toMap(event);
+        assertEquals(500, values.get(StructuredErrorLog.KEY_STATUS));
+        assertEquals(IllegalStateException.class.getName(), values.get(StructuredErrorLog.KEY_CODE));
+        assertEquals(IllegalStateException.class.getName(), values.get(StructuredErrorLog.KEY_EXCEPTION));
+        assertEquals("/persons/{id}", values.get(StructuredErrorLog.KEY_PATH));
+        assertEquals(3, ((StackTraceElement[]) values.get(StructuredErrorLog.KEY_FRAMES)).length);
+        assertEquals(values.get(StructuredErrorLog.KEY_FINGERPRINT), toMap(log(new StructuredErrorLog(3), ex)).get(StructuredErrorLog.KEY_FINGERPRINT));
+    }
+
+    @Test
+    void warnCausesTest() {
+        final IllegalStateException root = new IllegalStateException("ROOT");
+        final RuntimeException ex = new RuntimeException(new UndeclaredThrowableException(root));
+        new StructuredErrorLog(4).warn(logger, ex, null, 500, "CODE", true);
+        final Map<String, Object> values = toMap(appender.list.get(0));
+        assertArrayEquals(new String[] { UndeclaredThrowableException.class.getName(), IllegalStateException.class.getName() }, (String[]) values.get(StructuredErrorLog.KEY_CAUSES));
+        assertEquals("ROOT", values.get(StructuredErrorLog.KEY_ROOT_CAUSE_MESSAGE));
+        assertEquals(2, ((StackTraceElement[]) values.get(StructuredErrorLog.KEY_FRAMES)).length);
+        final StackTraceElement[] rootFrames = (StackTraceElement[]) values.get(StructuredErrorLog.KEY_ROOT_CAUSE_FRAMES);
+        assertEquals(2, rootFrames.length);
+        assertEquals(root.getStackTrace()[0], rootFrames[0]);
+        assertNotEquals(values.get(StructuredErrorLog.KEY_FINGERPRINT), toMap(log(new StructuredErrorLog(4), new RuntimeException(new IllegalArgumentException()))).get(StructuredErrorLog.KEY_FINGERPRINT));
+    }
+
+    @Test
+    void warnWithoutFramesTest() {
+        new StructuredErrorLog(3).warn(logger, new IllegalStateException(), null, 503, "CODE", false);
+        final Map<String, Object> values = toMap(appender.list.get(0));
+        assertFalse(values.containsKey(StructuredErrorLog.KEY_FRAMES));
+        assertFalse(values.containsKey(StructuredErrorLog.KEY_PATH));
+        assertFalse(values.containsKey(StructuredErrorLog.KEY_CAUSES));
+    }
+
+    @Test
+    void fingerprintTest() {
+        final StackTraceElement frame = new StackTraceElement("Service", "read", "Service.java", 10);
+        final StackTraceElement otherLine = new StackTraceElement("Service", "read", "Service.java", 11);
+        assertEquals(StructuredErrorLog.fingerprint(IllegalStateException.class, new StackTraceElement[] { frame }),
+                StructuredErrorLog.fingerprint(IllegalStateException.class, new StackTraceElement[] { frame }));
+        assertNotEquals(StructuredErrorLog.fingerprint(IllegalStateException.class, new StackTraceElement[] { frame }),
+                StructuredErrorLog.fingerprint(IllegalStateException.class, new StackTraceElement[] { otherLine }));
+    }
+
+    @Test
+    void adviceStructuredLogTest() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getLog().setStructured(true);
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, (ObjectMapper) null);
+        LogTestUtils.setLogger(advice, logger);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/persons/42");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/persons/{id}");
+        advice.handleBasicRuntimeException(new NotFoundException("NOT_FOUND", "MESSAGE"), new ServletWebRequest(request, new MockHttpServletResponse()));
+        final Map<String, Object> values = toMap(appender.list.get(0));
+        assertEquals(404, values.get(StructuredErrorLog.KEY_STATUS));
+        assertEquals("NOT_FOUND", values.get(StructuredErrorLog.KEY_CODE));
+        assertEquals("/persons/{id}", values.get(StructuredErrorLog.KEY_PATH));
+    }
+
+    private ILoggingEvent log(StructuredErrorLog structuredLog, Exception ex) {
+        appender.list.clear();
+        structuredLog.warn(logger, ex, null, 500, "CODE", true);
+        return appender.list.get(0);
+    }
+
+    private static final Map<String, Object> toMap(ILoggingEvent event) {
+        return event.getKeyValuePairs().stream().collect(Collectors.toMap(kv -> kv.key, kv -> kv.value));
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+class TraceInclusionPolicyTest {
+
+    private static final String HEADER = "X-Debug-Trace";
+
+    @Test
+    void defaultTest() {
+        final TraceInclusionPolicy tested = new TraceInclusionPolicy(new WebErrorProperties().getTrace(), null);
+        assertFalse(tested.isIncluded(createRequest(null)));
+        assertFalse(tested.isIncluded(createRequest("any")));
+        assertFalse(tested.isIncluded(mock(WebRequest.class)));
+    }
+
+    @Test
+    void tokenTest() {
+        final WebErrorProperties.Trace properties = new WebErrorProperties().getTrace();
+        properties.setToken("debug-token");
+        final TraceInclusionPolicy tested = new TraceInclusionPolicy(properties, null);
+        assertTrue(tested.isIncluded(createRequest("debug-token")));
+        assertFalse(tested.isIncluded(createRequest("debug-tokens")));
+        assertFalse(tested.isIncluded(createRequest(null)));
+        properties.setHeader(null);
+        assertFalse(new TraceInclusionPolicy(properties, null).isIncluded(createRequest("debug-token")));
+    }
+
+    @Test
+    void verifierTest() {
+        final TraceInclusionPolicy tested = new TraceInclusionPolicy(new WebErrorProperties().getTrace(), (token, request) -> token.startsWith("signed:"));
+        assertTrue(tested.isIncluded(createRequest("signed:abc")));
+        assertFalse(tested.isIncluded(createRequest("abc")));
+    }
+
+    @Test
+    void sampleRateTest() {
+        final WebErrorProperties.Trace properties = new WebErrorProperties().getTrace();
+        properties.setSampleRate(1);
+        assertTrue(new TraceInclusionPolicy(properties, null).isIncluded(mock(WebRequest.class)));
+        properties.setSampleRate(0.5);
+        final TraceInclusionPolicy tested = new TraceInclusionPolicy(properties, null);
+        int included = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (tested.isIncluded(createRequest(null))) {
+                included++;
+            }
+        }
+        assertTrue(included > 4_000 && included < 6_000);
+    }
+
+    private static final ServletWebRequest createRequest(String token) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        if (token != null) {
+            request.addHeader(HEADER, token);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+}
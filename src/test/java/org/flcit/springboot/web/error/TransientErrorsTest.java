@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+class TransientErrorsTest {
+
+    @Test
+    void getStatusTest() {
+        final TransientErrors tested = new TransientErrors(new WebErrorProperties.TransientErrors());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, tested.getStatus(new ResourceAccessException("I/O error", new ConnectException())));
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, tested.getStatus(new ResourceAccessException("I/O error", new SocketTimeoutException())));
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, tested.getStatus(new ResourceAccessException("I/O error", new CustomTimeoutException())));
+        assertNull(tested.getStatus(new IOException()));
+        assertNull(tested.getStatus(new IllegalStateException(new IOException())));
+    }
+
+    @Test
+    void inboundTest() {
+        final TransientErrors tested = new TransientErrors(new WebErrorProperties.TransientErrors());
+        assertNull(tested.getStatus(new SocketTimeoutException()));
+        assertNull(tested.getStatus(new ConnectException()));
+        assertNull(tested.getStatus(new HttpMessageNotReadableException("I/O error", new SocketTimeoutException(), new MockHttpInputMessage(new byte[0]))));
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, tested.getStatus(new SocketTimeoutException() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            public synchronized Throwable getCause() {
+                return new ResourceAccessException("I/O error");
+            }
+        }));
+    }
+
+    @Test
+    void extensionTest() {
+        final WebErrorProperties.TransientErrors properties = new WebErrorProperties.TransientErrors();
+        properties.getServiceUnavailable().add(IOException.class.getName());
+        properties.getOutbound().add(IOException.class.getName());
+        properties.setGatewayTimeout(List.of());
+        final TransientErrors tested = new TransientErrors(properties);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, tested.getStatus(new IOException()));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, tested.getStatus(new SocketTimeoutException()));
+        properties.setOutbound(null);
+        assertNull(new TransientErrors(properties).getStatus(new ResourceAccessException("I/O error", new ConnectException())));
+        properties.setOutbound(List.of(RestClientException.class.getName()));
+        properties.setServiceUnavailable(null);
+        properties.setGatewayTimeout(null);
+        assertNull(new TransientErrors(properties).getStatus(new ResourceAccessException("I/O error", new ConnectException())));
+    }
+
+    @Test
+    void headersTest() {
+        final WebErrorProperties.TransientErrors properties = new WebErrorProperties.TransientErrors();
+        assertEquals("5", new TransientErrors(properties).getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        properties.setRetryAfter(Duration.ZERO);
+        assertTrue(new TransientErrors(properties).getHeaders().isEmpty());
+    }
+
+    @Test
+    void isLoggedTest() {
+        final WebErrorProperties.TransientErrors properties = new WebErrorProperties.TransientErrors();
+        properties.setLogSampleRate(0);
+        assertFalse(new TransientErrors(properties).isLogged());
+        properties.setLogSampleRate(1);
+        assertTrue(new TransientErrors(properties).isLogged());
+    }
+
+    static final class CustomTimeoutException extends SocketTimeoutException {
+
+        private static final long serialVersionUID = 1L;
+
+    }
+
+}
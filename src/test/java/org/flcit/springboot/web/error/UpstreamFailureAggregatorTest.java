@@ -0,0 +1,145 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClientResponseException;
+
+import org.flcit.springboot.web.error.UpstreamFailureAggregator.UpstreamFailure;
+
+class UpstreamFailureAggregatorTest {
+
+    private static final String BODY = "{\"error\":\"down\"}";
+
+    @Test
+    void getTest() {
+        final UpstreamFailureAggregator tested = new UpstreamFailureAggregator(2, 60_000);
+        final UpstreamFailure failure = tested.get(create("http://api.flcit.org/persons/1", 500, BODY));
+        assertSame(failure, tested.get(create("http://api.flcit.org/persons/2", 500, BODY)));
+        assertEquals("api.flcit.org", failure.getHost());
+        assertEquals(500, failure.getStatus());
+        assertEquals("500 Internal Server Error on api.flcit.org | " + BODY, failure.getMessage());
+        assertNotSame(failure, tested.get(create("http://api.flcit.org/persons/1", 503, BODY)));
+        assertNull(tested.get(create("http://other.flcit.org/persons/1", 500, BODY)));
+    }
+
+    @Test
+    void getUnknownHostTest() {
+        final UpstreamFailureAggregator tested = new UpstreamFailureAggregator(10, 60_000);
+        final RestClientResponseException ex = new RestClientResponseException("MESSAGE", 500, "Internal Server Error", null, BODY.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        final UpstreamFailure failure = tested.get(ex);
+        assertEquals(UpstreamFailureAggregator.UNKNOWN_HOST, failure.getHost());
+        assertEquals("MESSAGE | " + BODY, failure.getMessage());
+        assertNotSame(failure, tested.get(new RestClientResponseException("OTHER", 500, "Internal Server Error", null, BODY.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void getHashCollisionTest() {
+        final UpstreamFailureAggregator tested = new UpstreamFailureAggregator(10, 60_000);
+        // same Arrays.hashCode
+        final UpstreamFailure failure = tested.get(create("http://api.flcit.org/persons/1", 500, "Aa"));
+        final UpstreamFailure other = tested.get(create("http://api.flcit.org/persons/1", 500, "BB"));
+        assertNotSame(failure, other);
+        assertEquals("500 Internal Server Error on api.flcit.org | BB", other.getMessage());
+    }
+
+    @Test
+    void flushTest() {
+        final UpstreamFailureAggregator tested = new UpstreamFailureAggregator(10, 60_000);
+        final UpstreamFailure failure = tested.get(create("http://api.flcit.org/persons/1", 500, BODY));
+        final long window = TimeUnit.SECONDS.toNanos(60);
+        final long now = System.nanoTime();
+        assertEquals(0, failure.increment(now));
+        failure.increment(now + 1);
+        failure.increment(now + 2);
+        final Map<UpstreamFailure, Long> summaries = new HashMap<>();
+        tested.flush(now + 3, summaries::put);
+        assertTrue(summaries.isEmpty());
+        tested.flush(now + window, summaries::put);
+        assertEquals(Map.of(failure, 2L), summaries);
+        summaries.clear();
+        tested.flush(now + window + 1, summaries::put);
+        assertTrue(summaries.isEmpty());
+        assertEquals(0, failure.increment(now + window + 2));
+        assertEquals(4, failure.getCount());
+    }
+
+    @Test
+    void evictTest() {
+        final UpstreamFailureAggregator tested = new UpstreamFailureAggregator(1, 60_000);
+        final long window = TimeUnit.SECONDS.toNanos(60);
+        final UpstreamFailure failure = tested.get(create("http://api.flcit.org/persons/1", 500, BODY));
+        final long now = System.nanoTime();
+        assertEquals(0, failure.increment(now));
+        assertNull(tested.get(create("http://other.flcit.org/persons/1", 500, BODY)));
+        final Map<UpstreamFailure, Long> summaries = new HashMap<>();
+        tested.flushIfDue(now, summaries::put);
+        assertEquals(1, tested.getFailures().size());
+        tested.flushIfDue(now + 2 * window, summaries::put);
+        assertTrue(summaries.isEmpty());
+        assertTrue(tested.getFailures().isEmpty());
+        assertNotSame(failure, tested.get(create("http://api.flcit.org/persons/1", 500, BODY)));
+    }
+
+    @Test
+    void digestBodyTest() {
+        final UpstreamFailureAggregator tested = new UpstreamFailureAggregator(10, 60_000, false);
+        final UpstreamFailure failure = tested.get(create("http://api.flcit.org/persons/1", 500, "{\"timestamp\":1}"));
+        assertSame(failure, tested.get(create("http://api.flcit.org/persons/1", 500, "{\"timestamp\":2}")));
+        assertEquals("500 Internal Server Error on api.flcit.org | {\"timestamp\":1}", failure.getMessage());
+        assertEquals(UpstreamFailureAggregator.digest(new byte[] { 1 }), UpstreamFailureAggregator.digest(new byte[] { 1 }));
+    }
+
+    @Test
+    void incrementTest() {
+        final long window = TimeUnit.SECONDS.toNanos(60);
+        final UpstreamFailure failure = new UpstreamFailure("host", 500, "MESSAGE", window);
+        final long now = System.nanoTime();
+        assertEquals(0, failure.increment(now));
+        assertEquals(-1, failure.increment(now + 1));
+        assertEquals(-1, failure.increment(now + 2));
+        assertEquals(2, failure.increment(now + window));
+        assertEquals(4, failure.getCount());
+    }
+
+    @Test
+    void getHostTest() {
+        assertEquals("api.flcit.org", UpstreamFailureAggregator.getHost("404 Not Found on GET request for \"https://api.flcit.org:8443/persons\": [no body]"));
+        assertEquals("api.flcit.org", UpstreamFailureAggregator.getHost("404 Not Found on GET request for \"http://api.flcit.org\": [no body]"));
+        assertEquals(UpstreamFailureAggregator.UNKNOWN_HOST, UpstreamFailureAggregator.getHost(null));
+        assertEquals(UpstreamFailureAggregator.UNKNOWN_HOST, UpstreamFailureAggregator.getHost("404 Not Found"));
+        assertEquals(UpstreamFailureAggregator.UNKNOWN_HOST, UpstreamFailureAggregator.getHost("404 Not Found on GET request for \"/persons\""));
+    }
+
+    private static final RestClientResponseException create(String url, int status, String body) {
+        final String statusText = status == 500 ? "Internal Server Error" : "Service Unavailable";
+        return new RestClientResponseException(status + " " + statusText + " on GET request for \"" + url + "\": \"" + body + "\"",
+                status, statusText, null, body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.core.MethodParameter;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+import org.springframework.validation.method.MethodValidationResult;
+import org.springframework.validation.method.ParameterValidationResult;
+
+class ValidationErrorsTest {
+
+    @Test
+    void getErrorsTest() {
+        final ValidationErrors tested = new ValidationErrors(2);
+        assertEquals(2, tested.getErrors(Constants.ERRORS).size());
+        assertEquals(1, tested.getErrors(Constants.ERRORS.subList(0, 1)).size());
+        assertNull(tested.getErrors((List<ObjectError>) null));
+    }
+
+    @Test
+    void getMethodValidationErrorsTest() throws NoSuchMethodException {
+        final Method method = ValidationErrorsTest.class.getDeclaredMethod("find", String.class, int.class);
+        final MethodValidationResult result = MethodValidationResult.create(this, method, List.of(
+                new ParameterValidationResult(new MethodParameter(method, 1), 0, List.of(resolvable("Min", "must be greater than or equal to 1")), null, null, null, (error, type) -> null)),
+                List.of(resolvable("ValidRange", "invalid range")));
+        final List<ObjectError> errors = new ValidationErrors(10).getErrors(result);
+        assertEquals(2, errors.size());
+        final FieldError error = (FieldError) errors.get(0);
+        assertEquals("find", error.getObjectName());
+        assertEquals("arg1", error.getField());
+        assertEquals("Min", error.getCode());
+        assertEquals("must be greater than or equal to 1", error.getDefaultMessage());
+        assertEquals("ValidRange", errors.get(1).getCode());
+        assertEquals(1, new ValidationErrors(1).getErrors(result).size());
+    }
+
+    private static final MessageSourceResolvable resolvable(String code, String defaultMessage) {
+        return new DefaultMessageSourceResolvable(new String[] { code }, defaultMessage);
+    }
+
+    void find(String id, int size) {
+        // validated method
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.flcit.springboot.commons.test.util.LogTestUtils;
+import org.flcit.springboot.commons.test.validation.SimpleBindingResult;
+import org.flcit.springboot.web.core.exception.NotFoundException;
+
+class VirtualThreadPinningTest {
+
+    private static final int TASKS = 2_000;
+    private static final String VIRTUAL_THREAD_PINNED = "jdk.VirtualThreadPinned";
+    private static final long WRITE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Test
+    void handlersOnVirtualThreadsTest() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require JDK 21+");
+        final ErrorControllerAdvice advice = createAdvice();
+        final List<Function<ServletWebRequest, Object>> handlers = List.of(
+            request -> advice.handleBasicRuntimeException(new NotFoundException("NOT_FOUND", "MESSAGE"), request),
+            request -> advice.handleGlobalException(new IllegalStateException("TECHNICAL"), request),
+            request -> advice.handleRestClientResponseException(new RestClientResponseException("500 on GET", 500, "Internal Server Error", null, "{}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), request),
+            request -> advice.handleTaskRejectedException(new TaskRejectedException("REJECTED"), request),
+            request -> handleException(advice, new AsyncRequestTimeoutException(), request),
+            request -> handleException(advice, new MethodArgumentNotValidException(new MethodParameter(Constants.getMethodTest(), 0), new SimpleBindingResult(Constants.ERRORS)), request)
+        );
+        final List<RecordedEvent> pinned = recordPinnedEvents(() -> run(handlers));
+        assertTrue(pinned.isEmpty(), () -> "Virtual threads pinned on the error path: " + pinned);
+    }
+
+    /**
+     * Control of the recording: a virtual thread parked in a synchronized block is pinned (before JDK 24)
+     * @throws Exception
+     */
+    @Test
+    void pinnedDetectedTest() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21 && Runtime.version().feature() < 24, "Synchronized pins the virtual threads from JDK 21 to 23");
+        final Object lock = new Object();
+        final List<RecordedEvent> pinned = recordPinnedEvents(() -> {
+            final Thread thread = (Thread) Thread.class.getMethod("startVirtualThread", Runnable.class).invoke(null, (Runnable) () -> {
+                synchronized (lock) {
+                    new ParkingOutputStream().write(new byte[1], 0, 1);
+                }
+            });
+            thread.join();
+        });
+        assertFalse(pinned.isEmpty());
+    }
+
+    /**
+     * @param task
+     * @return the pinned events recorded during the task, without threshold
+     * @throws Exception
+     */
+    private static final List<RecordedEvent> recordPinnedEvents(ThrowingRunnable task) throws Exception {
+        final Path dump = Files.createTempFile("virtual-thread-pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(VIRTUAL_THREAD_PINNED).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            task.run();
+            recording.stop();
+            recording.dump(dump);
+            return RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> VIRTUAL_THREAD_PINNED.equals(event.getEventType().getName()))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private static final void run(List<Function<ServletWebRequest, Object>> handlers) throws Exception {
+        // ExecutorService is AutoCloseable only since JDK 19: the project compiles in release 17
+        final ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        try {
+            final List<Future<Object>> results = new ArrayList<>(TASKS * handlers.size());
+            for (int i = 0; i < TASKS; i++) {
+                for (Function<ServletWebRequest, Object> handler: handlers) {
+                    results.add(executor.submit(() -> handler.apply(new ServletWebRequest(new MockHttpServletRequest("GET", "/persons/42"), new ParkingResponse()))));
+                }
+            }
+            for (Future<Object> result: results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    private static final ErrorControllerAdvice createAdvice() {
+        final WebErrorProperties properties = new WebErrorProperties();
+        properties.getDirectWrite().setEnabled(true);
+        final ErrorControllerAdvice advice = new ErrorControllerAdvice(properties, new ObjectMapper());
+        LogTestUtils.setLogger(advice, createLogger());
+        return advice;
+    }
+
+    /**
+     * @return a WARN logger formatting the events and the stack traces, written to a blocking stream
+     */
+    private static final Logger createLogger() {
+        final LoggerContext context = new LoggerContext();
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger - %msg%n%ex");
+        encoder.start();
+        final OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new ParkingOutputStream());
+        appender.start();
+        final Logger logger = context.getLogger(ErrorControllerAdvice.class);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    private static final Object handleException(ErrorControllerAdvice advice, Exception ex, ServletWebRequest request) {
+        try {
+            return advice.handleException(ex, request);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+
+        void run() throws Exception;
+
+    }
+
+    /**
+     * Response whose body stream blocks on each write, as a slow client does
+     */
+    static final class ParkingResponse extends MockHttpServletResponse {
+
+        private final ServletOutputStream outputStream = new ParkingOutputStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+
+    }
+
+    /**
+     * Discarding stream which parks the writing thread: a pinned virtual thread emits jdk.VirtualThreadPinned
+     */
+    static final class ParkingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) {
+            LockSupport.parkNanos(WRITE_NANOS);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            LockSupport.parkNanos(WRITE_NANOS);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // NOTHING
+        }
+
+    }
+
+}
@@ -55,4 +55,12 @@ class ApiErrorsTest {
         assertNull(apiErrors.getErrors());
     }
 
+    @Test
+    void messageResolverTest() {
+        final ApiErrors apiErrors = new ApiErrors(PATH, STATUS, CODE, MESSAGE, Constants.ERRORS, error -> "resolved_" + error.getObjectName());
+        for (int i = 0; i < apiErrors.getErrors().size(); i++) {
+            assertEquals("resolved_" + Constants.ERRORS.get(i).getObjectName(), apiErrors.getErrors().get(i).getDefaultMessage());
+        }
+    }
+
 }
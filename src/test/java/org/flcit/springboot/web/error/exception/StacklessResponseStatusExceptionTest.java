@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.web.error.exception;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+class StacklessResponseStatusExceptionTest {
+
+    @Test
+    void test() {
+        final StacklessResponseStatusException ex = StacklessResponseStatusException.of(HttpStatus.NOT_FOUND, "NOT_FOUND", "MESSAGE");
+        assertEquals(0, ex.getStackTrace().length);
+        assertSame(ex, ex.fillInStackTrace());
+        assertEquals(404, ex.code());
+        assertEquals("NOT_FOUND", ex.getCode());
+        assertEquals("MESSAGE", ex.getMessage());
+    }
+
+}